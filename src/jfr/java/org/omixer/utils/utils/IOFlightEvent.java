@@ -0,0 +1,64 @@
+package org.omixer.utils.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ *
+ * The Flight Recorder counterpart of {@link IOEvent}, its duration is the
+ * elapsed time of the operation.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+@Name("org.omixer.utils.IO")
+@Label("I/O Operation")
+@Category({ "Omixer", "I/O" })
+@Description("A read, write or (de)compression of FileUtils or CompressUtils")
+@StackTrace(false)
+final class IOFlightEvent extends Event {
+
+	@Label("Kind")
+	String kind;
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Path")
+	String path;
+
+	@Label("Bytes Read")
+	@DataAmount
+	long bytesRead;
+
+	@Label("Bytes Written")
+	@DataAmount
+	long bytesWritten;
+
+	@Label("Lines")
+	long lines;
+
+	@Label("Cells")
+	long cells;
+
+	@Label("Wait Time")
+	@Timespan
+	long waitTime;
+
+	@Label("Parse Time")
+	@Timespan
+	long parseTime;
+
+	@Label("Compression Ratio")
+	double compressionRatio;
+
+	@Label("Throughput")
+	@Description("Bytes read and written per second")
+	double throughput;
+}
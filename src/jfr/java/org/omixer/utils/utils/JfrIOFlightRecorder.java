@@ -0,0 +1,55 @@
+package org.omixer.utils.utils;
+
+import jdk.jfr.EventType;
+
+/**
+ *
+ * Commits the operations of {@link FileUtils} and {@link CompressUtils} as
+ * {@link IOFlightEvent}s, instantiated by {@link IOFlightRecorder} when the
+ * runtime ships <code>jdk.jfr</code>.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+final class JfrIOFlightRecorder extends IOFlightRecorder {
+
+	private final EventType type = EventType.getEventType(IOFlightEvent.class);
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	Object begin() {
+		// no event is allocated unless a recording enables it
+		if (!type.isEnabled()) {
+			return null;
+		}
+		final IOFlightEvent flightEvent = new IOFlightEvent();
+		flightEvent.begin();
+		return flightEvent;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	void commit(Object flightEvent, IOEvent event) {
+		final IOFlightEvent flight = (IOFlightEvent) flightEvent;
+		flight.end();
+		if (!flight.shouldCommit()) {
+			return;
+		}
+		flight.kind = event.getKind().name();
+		flight.operation = event.getOperation();
+		flight.path = event.getFile() == null ? null : event.getFile().getPath();
+		flight.bytesRead = event.getBytesRead();
+		flight.bytesWritten = event.getBytesWritten();
+		flight.lines = event.getLines();
+		flight.cells = event.getCells();
+		flight.waitTime = event.getWaitNanos();
+		flight.parseTime = event.getParseNanos();
+		flight.compressionRatio = event.getCompressionRatio();
+		flight.throughput = event.getThroughput();
+		flight.commit();
+	}
+}
@@ -0,0 +1,131 @@
+package org.omixer.utils.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.omixer.utils.Constants;
+import org.omixer.utils.utils.CompressUtils;
+import org.omixer.utils.utils.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 
+ * The {@link CompressUtils} operations on synthetic matrices
+ * 
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CompressBenchmark {
+
+	@Param({ "10000" })
+	public int rows;
+
+	@Param({ "100" })
+	public int columns;
+
+	@Param({ "0.0", "0.9" })
+	public double sparsity;
+
+	@Param({ "4" })
+	public int threads;
+
+	@Param({ "8" })
+	public int files;
+
+	private File directory;
+	private File matrix;
+	private File gzipped;
+	private File zipped;
+	private File output;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("compress").toFile();
+		final File input = new File(directory, "input");
+		input.mkdirs();
+		for (int i = 0; i < files; i++) {
+			new MatrixGenerator(rows, columns, sparsity, i).write(new File(input, "matrix" + i + ".tsv"),
+					Constants.TAB);
+		}
+		matrix = new File(input, "matrix0.tsv");
+
+		gzipped = new File(directory, "matrix.tsv.gz");
+		CompressUtils.gzip(matrix.getPath(), gzipped.getPath());
+		zipped = new File(directory, "input.zip");
+		CompressUtils.zipDirectory(input.getPath(), zipped.getPath());
+		output = new File(directory, "output");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		delete(directory);
+	}
+
+	@Benchmark
+	public void gzip() throws IOException {
+		CompressUtils.gzip(matrix.getPath(), output.getPath());
+	}
+
+	@Benchmark
+	public void gzipParallel() throws IOException {
+		CompressUtils.gzip(matrix.getPath(), output.getPath(), threads);
+	}
+
+	@Benchmark
+	public void gunzip() throws IOException {
+		CompressUtils.gunzip(gzipped.getPath(), output.getPath());
+	}
+
+	@Benchmark
+	public void zipDirectory() throws IOException {
+		CompressUtils.zipDirectory(new File(directory, "input").getPath(), output.getPath());
+	}
+
+	@Benchmark
+	public List<File> unzip() throws IOException {
+		return CompressUtils.unzip(zipped.getPath(), new File(output, "unzip").getPath());
+	}
+
+	@Benchmark
+	public List<File> unzipParallel() throws IOException {
+		return CompressUtils.unzip(zipped.getPath(), new File(output, "unzip").getPath(), threads);
+	}
+
+	@Benchmark
+	public List<File> unzipSelected() throws IOException {
+		return CompressUtils.unzip(zipped.getPath(), new File(output, "unzip").getPath(),
+				Arrays.asList("*0.tsv"), threads);
+	}
+
+	private static void delete(File file) {
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		FileUtils.deleteQuietly(file);
+	}
+}
@@ -0,0 +1,79 @@
+package org.omixer.utils.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.omixer.utils.Constants;
+import org.omixer.utils.model.KeyValue;
+import org.omixer.utils.readers.DelimitedTokenizer;
+import org.omixer.utils.readers.impl.SimpleLineProcessor;
+import org.omixer.utils.utils.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 
+ * {@link SimpleLineProcessor} on one matrix line, decoded or read in place
+ * 
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineProcessorBenchmark {
+
+	@Param({ "100", "1000" })
+	public int columns;
+
+	@Param({ "0.0", "0.9" })
+	public double sparsity;
+
+	private File file;
+	private DelimitedTokenizer tokenizer;
+	private String line;
+	private SimpleLineProcessor<String, Double> lineProcessor;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		file = new MatrixGenerator(1, columns, sparsity).write(File.createTempFile("line", ".tsv"), Constants.TAB);
+		tokenizer = DelimitedTokenizer.open(file, Constants.TAB);
+		// the header is skipped, the tokenizer stays on the single row
+		tokenizer.skipLines(1);
+		tokenizer.nextLine();
+		line = tokenizer.getLine();
+		lineProcessor = new SimpleLineProcessor<String, Double>(String.class, Double.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		tokenizer.close();
+		FileUtils.deleteQuietly(file);
+	}
+
+	@Benchmark
+	public List<KeyValue<String, Double>> processLine() {
+		return lineProcessor.process(line, Constants.TAB);
+	}
+
+	@Benchmark
+	public List<KeyValue<String, Double>> processTokenizer() {
+		return lineProcessor.process(tokenizer);
+	}
+}
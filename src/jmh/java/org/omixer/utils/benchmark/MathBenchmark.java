@@ -0,0 +1,94 @@
+package org.omixer.utils.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.omixer.utils.utils.MathUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 
+ * The {@link MathUtils} functions over synthetic vectors
+ * 
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MathBenchmark {
+
+	@Param({ "1000000" })
+	public int length;
+
+	@Param({ "0.0", "0.5" })
+	public double sparsity;
+
+	private double[] lhs;
+	private double[] rhs;
+	private double[] ratios;
+	private Double[] boxed;
+	private long[] counts;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		lhs = new MatrixGenerator(1, 1, sparsity, 1).vector(length);
+		rhs = new MatrixGenerator(1, 1, sparsity, 2).vector(length);
+		ratios = new double[length];
+		boxed = new Double[length];
+		counts = new long[length];
+		for (int i = 0; i < length; i++) {
+			boxed[i] = lhs[i];
+			counts[i] = (long) lhs[i];
+		}
+	}
+
+	@Benchmark
+	public void computeRatioBoxed(Blackhole blackhole) {
+		for (int i = 0; i < length; i++) {
+			blackhole.consume(MathUtils.computeRatio(lhs[i], rhs[i]));
+		}
+	}
+
+	@Benchmark
+	public double[] computeRatioArrays() {
+		MathUtils.computeRatio(lhs, rhs, ratios);
+		return ratios;
+	}
+
+	@Benchmark
+	public double[] accumulateBoxed() {
+		return MathUtils.accumulate(boxed);
+	}
+
+	@Benchmark
+	public double[] accumulateDoubles() {
+		return MathUtils.accumulate(lhs);
+	}
+
+	@Benchmark
+	public long[] accumulateLongs() {
+		return MathUtils.accumulate(counts);
+	}
+
+	@Benchmark
+	public long[] parallelAccumulateLongs() {
+		final long[] accumulated = counts.clone();
+		MathUtils.parallelAccumulateInPlace(accumulated);
+		return accumulated;
+	}
+}
@@ -0,0 +1,128 @@
+package org.omixer.utils.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.SplittableRandom;
+
+/**
+ * 
+ * Deterministic synthetic matrices: the same shape, sparsity and seed always
+ * give the same content. Cells are counts-like values with three decimals,
+ * or 0 with the probability of the sparsity.
+ * 
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ * 
+ */
+public final class MatrixGenerator {
+
+	public static final long DEFAULT_SEED = 42;
+
+	private final int rows;
+	private final int columns;
+	private final double sparsity;
+	private final long seed;
+
+	/**
+	 * 
+	 * @param rows
+	 * @param columns
+	 *            the number of value columns, the row labels excluded
+	 * @param sparsity
+	 *            the fraction of cells that are 0, between 0 and 1
+	 * @param seed
+	 */
+	public MatrixGenerator(int rows, int columns, double sparsity, long seed) {
+		if (sparsity < 0 || sparsity > 1) {
+			throw new IllegalArgumentException("sparsity must be between 0 and 1: " + sparsity);
+		}
+		this.rows = rows;
+		this.columns = columns;
+		this.sparsity = sparsity;
+		this.seed = seed;
+	}
+
+	public MatrixGenerator(int rows, int columns, double sparsity) {
+		this(rows, columns, sparsity, DEFAULT_SEED);
+	}
+
+	/**
+	 * Writes the matrix as text: a header of column labels then one line per
+	 * row starting with its label
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @return the file
+	 * @throws IOException
+	 */
+	public File write(File file, String delimiter) throws IOException {
+
+		final SplittableRandom random = new SplittableRandom(seed);
+
+		try (Writer writer = Files.newBufferedWriter(file.toPath())) {
+			writer.write("feature");
+			for (int j = 0; j < columns; j++) {
+				writer.write(delimiter);
+				writer.write(columnLabel(j));
+			}
+			writer.write('\n');
+
+			for (int i = 0; i < rows; i++) {
+				writer.write(rowLabel(i));
+				for (int j = 0; j < columns; j++) {
+					writer.write(delimiter);
+					final double value = nextValue(random);
+					writer.write(value == 0 ? "0" : Double.toString(value));
+				}
+				writer.write('\n');
+			}
+		}
+
+		return file;
+	}
+
+	/**
+	 * @return the values of the matrix, column by column
+	 */
+	public double[][] columns() {
+		final SplittableRandom random = new SplittableRandom(seed);
+		final double[][] values = new double[columns][rows];
+		// same order as the text: row by row
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				values[j][i] = nextValue(random);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * @param length
+	 * @return a vector with the sparsity of this generator
+	 */
+	public double[] vector(int length) {
+		final SplittableRandom random = new SplittableRandom(seed);
+		final double[] values = new double[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = nextValue(random);
+		}
+		return values;
+	}
+
+	public static String rowLabel(int row) {
+		return "F" + row;
+	}
+
+	public static String columnLabel(int column) {
+		return "S" + column;
+	}
+
+	private double nextValue(SplittableRandom random) {
+		if (random.nextDouble() < sparsity) {
+			return 0;
+		}
+		// counts-like values spanning a few orders of magnitude
+		return Math.round(Math.exp(random.nextDouble() * 10) * 1000) / 1000d;
+	}
+}
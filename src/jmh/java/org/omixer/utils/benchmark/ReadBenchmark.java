@@ -0,0 +1,203 @@
+package org.omixer.utils.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.omixer.utils.Constants;
+import org.omixer.utils.exceptions.IncorrectNumberOfEntriesException;
+import org.omixer.utils.model.DoubleMatrix;
+import org.omixer.utils.model.KeyValue;
+import org.omixer.utils.model.ObjectDoubleMap;
+import org.omixer.utils.model.OffHeapDoubleMatrix;
+import org.omixer.utils.model.SparseDoubleMatrix;
+import org.omixer.utils.model.StringMultimap;
+import org.omixer.utils.readers.RowCursor;
+import org.omixer.utils.readers.RowFilter;
+import org.omixer.utils.readers.RowVisitor;
+import org.omixer.utils.readers.impl.RowFilters;
+import org.omixer.utils.readers.impl.SimpleLineProcessor;
+import org.omixer.utils.utils.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 
+ * The {@link FileUtils} readers on a synthetic matrix
+ * 
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadBenchmark {
+
+	@Param({ "10000" })
+	public int rows;
+
+	@Param({ "100" })
+	public int columns;
+
+	@Param({ "0.0", "0.9" })
+	public double sparsity;
+
+	private File matrix;
+	private SimpleLineProcessor<String, Double> lineProcessor;
+	private List<String> projection;
+	private RowFilter rowFilter;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		matrix = new MatrixGenerator(rows, columns, sparsity).write(File.createTempFile("matrix", ".tsv"),
+				Constants.TAB);
+		lineProcessor = new SimpleLineProcessor<String, Double>(String.class, Double.class);
+		projection = new ArrayList<String>();
+		for (int i = 0; i < columns; i += 10) {
+			projection.add(MatrixGenerator.columnLabel(i));
+		}
+		final List<String> rowLabels = new ArrayList<String>();
+		for (int i = 0; i < rows; i += 100) {
+			rowLabels.add(MatrixGenerator.rowLabel(i));
+		}
+		rowFilter = RowFilters.in(rowLabels);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		FileUtils.deleteQuietly(matrix);
+		FileUtils.deleteQuietly(new File(matrix.getPath() + ".omxm"));
+	}
+
+	@Benchmark
+	public Map<String, List<KeyValue<String, Double>>> readMatrix()
+			throws IncorrectNumberOfEntriesException, IOException {
+		return FileUtils.readMatrix(matrix, Constants.TAB, lineProcessor);
+	}
+
+	@Benchmark
+	public Map<String, List<KeyValue<String, Double>>> readMatrixProjected()
+			throws IncorrectNumberOfEntriesException, IOException {
+		// one column out of ten
+		return FileUtils.readMatrix(matrix, Constants.TAB, lineProcessor, projection);
+	}
+
+	@Benchmark
+	public Map<String, List<KeyValue<String, Double>>> readMatrixFiltered()
+			throws IncorrectNumberOfEntriesException, IOException {
+		// one row out of a hundred
+		return FileUtils.readMatrix(matrix, Constants.TAB, lineProcessor, rowFilter);
+	}
+
+	@Benchmark
+	public Map<String, List<KeyValue<String, Double>>> readMatrixParallel()
+			throws IncorrectNumberOfEntriesException, IOException {
+		return FileUtils.readMatrixParallel(matrix, Constants.TAB, lineProcessor);
+	}
+
+	@Benchmark
+	public DoubleMatrix readDoubleMatrix() throws IncorrectNumberOfEntriesException, IOException {
+		return FileUtils.readDoubleMatrix(matrix, Constants.TAB);
+	}
+
+	@Benchmark
+	public double readDoubleMatrixOffHeap() throws IncorrectNumberOfEntriesException, IOException {
+		try (OffHeapDoubleMatrix offHeap = FileUtils.readDoubleMatrixOffHeap(matrix, Constants.TAB)) {
+			return offHeap.get(0, 0);
+		}
+	}
+
+	@Benchmark
+	public DoubleMatrix readDoubleMatrixCached() throws IncorrectNumberOfEntriesException, IOException {
+		// the sidecar is written by the first invocation
+		return FileUtils.readDoubleMatrixCached(matrix, Constants.TAB);
+	}
+
+	@Benchmark
+	public SparseDoubleMatrix readSparseMatrix() throws IncorrectNumberOfEntriesException, IOException {
+		return FileUtils.readSparseMatrix(matrix, Constants.TAB);
+	}
+
+	@Benchmark
+	public double visitMatrix() throws IOException {
+		final double[] sum = new double[1];
+		FileUtils.visitMatrix(matrix, Constants.TAB, new RowVisitor() {
+			public void visit(RowCursor row) {
+				sum[0] += row.getDouble(0);
+			}
+		});
+		return sum[0];
+	}
+
+	@Benchmark
+	public Map<String, List<String>> readKeyValues() throws IOException {
+		return FileUtils.readKeyValues(matrix, Constants.TAB, 1);
+	}
+
+	@Benchmark
+	public StringMultimap readKeyValuesCompact() throws IOException {
+		return FileUtils.readKeyValuesCompact(matrix, Constants.TAB, 1);
+	}
+
+	@Benchmark
+	public long streamKeyValues() throws IOException {
+		try (Stream<KeyValue<String, List<String>>> stream = FileUtils.streamKeyValues(matrix, Constants.TAB, 1)) {
+			return stream.parallel().count();
+		}
+	}
+
+	@Benchmark
+	public Map<String, String> readKeyValue() throws IOException {
+		return FileUtils.readKeyValue(matrix.getPath(), Constants.TAB, 1);
+	}
+
+	@Benchmark
+	public Map<String, Double> readKeyDoubleValue() throws IOException {
+		return FileUtils.readKeyDoubleValue(matrix, Constants.TAB, 1);
+	}
+
+	@Benchmark
+	public ObjectDoubleMap<String> readKeyDoubleMap() throws IOException {
+		return FileUtils.readKeyDoubleMap(matrix, Constants.TAB, 1);
+	}
+
+	@Benchmark
+	public List<String[]> readCSV() throws IOException {
+		return FileUtils.readCSV(matrix, Constants.TAB, 1);
+	}
+
+	@Benchmark
+	public long streamCSV() throws IOException {
+		try (Stream<String[]> stream = FileUtils.streamCSV(matrix, Constants.TAB, 1)) {
+			return stream.parallel().count();
+		}
+	}
+
+	@Benchmark
+	public String readContentAsString() throws IOException {
+		return FileUtils.readContentAsString(matrix);
+	}
+
+	@Benchmark
+	public String getFileHeader() throws IOException {
+		return FileUtils.getFileHeader(matrix.getPath());
+	}
+}
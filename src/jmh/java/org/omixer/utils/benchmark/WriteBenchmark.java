@@ -0,0 +1,133 @@
+package org.omixer.utils.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.omixer.utils.Constants;
+import org.omixer.utils.utils.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 
+ * The {@link FileUtils} writers, sequential and with formatting on an
+ * executor
+ * 
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmark {
+
+	@Param({ "10000" })
+	public int rows;
+
+	@Param({ "100" })
+	public int columns;
+
+	@Param({ "0.0" })
+	public double sparsity;
+
+	private File output;
+	private ExecutorService executor;
+	private List<double[]> rowValues;
+	private Map<String, Iterable<Double>> keyValues;
+	private Map<String, Double> keyValue;
+	private Function<double[], String> formater;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		output = File.createTempFile("output", ".tsv");
+		executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+		final double[][] values = new MatrixGenerator(rows, columns, sparsity).columns();
+		rowValues = new ArrayList<double[]>(rows);
+		keyValues = new LinkedHashMap<String, Iterable<Double>>();
+		keyValue = new LinkedHashMap<String, Double>();
+		for (int i = 0; i < rows; i++) {
+			final Double[] row = new Double[columns];
+			final double[] primitiveRow = new double[columns];
+			for (int j = 0; j < columns; j++) {
+				row[j] = values[j][i];
+				primitiveRow[j] = values[j][i];
+			}
+			rowValues.add(primitiveRow);
+			keyValues.put(MatrixGenerator.rowLabel(i), Arrays.asList(row));
+			keyValue.put(MatrixGenerator.rowLabel(i), row[0]);
+		}
+
+		formater = new Function<double[], String>() {
+			public String apply(double[] row) {
+				final StringBuilder s = new StringBuilder();
+				for (int j = 0; j < row.length; j++) {
+					if (j > 0) {
+						s.append(Constants.TAB);
+					}
+					s.append(row[j]);
+				}
+				return s.toString();
+			}
+		};
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		executor.shutdown();
+		FileUtils.deleteQuietly(output);
+	}
+
+	@Benchmark
+	public void writeObjects() throws IOException {
+		FileUtils.writeObjects(output, "header", rowValues, formater);
+	}
+
+	@Benchmark
+	public void writeObjectsParallel() throws IOException {
+		FileUtils.writeObjects(output, "header", rowValues, formater, executor);
+	}
+
+	@Benchmark
+	public void writeKeyValues() throws IOException {
+		FileUtils.writeKeyValues(keyValues, output.getPath(), Constants.TAB);
+	}
+
+	@Benchmark
+	public void writeKeyValuesParallel() throws IOException {
+		FileUtils.writeKeyValues(keyValues, output.getPath(), Constants.TAB, executor);
+	}
+
+	@Benchmark
+	public void writeKeyValue() throws IOException {
+		FileUtils.writeKeyValue(keyValue, "header", output, Constants.TAB);
+	}
+
+	@Benchmark
+	public void writeKeyValueParallel() throws IOException {
+		FileUtils.writeKeyValue(keyValue, "header", output, Constants.TAB, executor);
+	}
+}
@@ -0,0 +1,123 @@
+package org.omixer.utils.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * A dense matrix of doubles stored column by column: each column is a single
+ * <code>double[]</code> sharing the same row labels, and columns are looked up
+ * by their header name in constant time.
+ *
+ * Arrays are shared, not copied, in and out of this class.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+public final class DoubleMatrix implements Matrix {
+
+	private final String[] rowLabels;
+	private final String[] columnLabels;
+	private final double[][] columns;
+	private final Map<String, Integer> columnIndexes;
+
+	/**
+	 *
+	 * @param rowLabels
+	 * @param columnLabels
+	 * @param columns
+	 *            one array per column label, each as long as rowLabels
+	 */
+	public DoubleMatrix(String[] rowLabels, String[] columnLabels, double[][] columns) {
+
+		if (columnLabels.length != columns.length) {
+			throw new IllegalArgumentException(columnLabels.length + " column labels for " + columns.length
+					+ " columns");
+		}
+
+		this.rowLabels = rowLabels;
+		this.columnLabels = columnLabels;
+		this.columns = columns;
+		this.columnIndexes = new HashMap<String, Integer>(columnLabels.length * 2);
+
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i].length != rowLabels.length) {
+				throw new IllegalArgumentException("Column " + columnLabels[i] + " has " + columns[i].length
+						+ " rows instead of " + rowLabels.length);
+			}
+			// as with a map, a duplicated label refers to its last column
+			columnIndexes.put(columnLabels[i], i);
+		}
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public int getRowCount() {
+		return rowLabels.length;
+	}
+
+	/**
+	 * @return the number of columns
+	 */
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	/**
+	 * @return the row labels, in file order
+	 */
+	public String[] getRowLabels() {
+		return rowLabels;
+	}
+
+	/**
+	 * @return the column labels, in file order
+	 */
+	public String[] getColumnLabels() {
+		return columnLabels;
+	}
+
+	/**
+	 * @param columnLabel
+	 * @return the index of the column or -1 if there is no such column
+	 */
+	public int getColumnIndex(String columnLabel) {
+		final Integer index = columnIndexes.get(columnLabel);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @param column
+	 * @return the values of the column at the given index
+	 */
+	public double[] getColumn(int column) {
+		return columns[column];
+	}
+
+	/**
+	 * @param columnLabel
+	 * @return the values of the column or <code>null</code> if there is no
+	 *         such column
+	 */
+	public double[] getColumn(String columnLabel) {
+		final int index = getColumnIndex(columnLabel);
+		return index < 0 ? null : columns[index];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void copyColumn(int column, double[] destination) {
+		System.arraycopy(columns[column], 0, destination, 0, rowLabels.length);
+	}
+
+	/**
+	 * @param row
+	 * @param column
+	 * @return the value at the given row and column
+	 */
+	public double get(int row, int column) {
+		return columns[column][row];
+	}
+}
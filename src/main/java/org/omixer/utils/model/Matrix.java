@@ -0,0 +1,67 @@
+package org.omixer.utils.model;
+
+/**
+ *
+ * A labeled matrix of doubles accessed by column, whatever its storage
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+public interface Matrix {
+
+	/**
+	 * @return the number of rows
+	 */
+	int getRowCount();
+
+	/**
+	 * @return the number of columns
+	 */
+	int getColumnCount();
+
+	/**
+	 * @return the row labels, in file order
+	 */
+	String[] getRowLabels();
+
+	/**
+	 * @return the column labels, in file order
+	 */
+	String[] getColumnLabels();
+
+	/**
+	 * @param columnLabel
+	 * @return the index of the column or -1 if there is no such column
+	 */
+	int getColumnIndex(String columnLabel);
+
+	/**
+	 * @param column
+	 * @return the values of the column at the given index, the column itself
+	 *         or a copy depending on the storage
+	 */
+	double[] getColumn(int column);
+
+	/**
+	 * @param columnLabel
+	 * @return the values of the column or <code>null</code> if there is no
+	 *         such column
+	 */
+	double[] getColumn(String columnLabel);
+
+	/**
+	 * Copies the values of a column
+	 *
+	 * @param column
+	 * @param destination
+	 *            an array of at least {@link #getRowCount()} values
+	 */
+	void copyColumn(int column, double[] destination);
+
+	/**
+	 * @param row
+	 * @param column
+	 * @return the value at the given row and column
+	 */
+	double get(int row, int column);
+}
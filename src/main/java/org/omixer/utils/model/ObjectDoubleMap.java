@@ -0,0 +1,234 @@
+package org.omixer.utils.model;
+
+import java.util.Arrays;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ *
+ * A map of objects to primitive doubles using open addressing: keys live in a
+ * linear probing table and values in a parallel <code>double[]</code>, so
+ * there is neither an entry object nor a boxed value per mapping.
+ *
+ * Mappings can not be removed. <code>null</code> keys are not supported.
+ * Instances are not thread safe.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ * @param <K>
+ */
+public final class ObjectDoubleMap<K> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.75f;
+	// largest power of two array length
+	private static final int MAX_CAPACITY = 1 << 30;
+	/**
+	 * The largest number of mappings a map can hold
+	 */
+	public static final int MAX_SIZE = (int) (MAX_CAPACITY * LOAD_FACTOR);
+	// golden ratio multiplier to spread the key hash codes
+	private static final int MIX = 0x9E3779B9;
+
+	private final double missingValue;
+
+	private Object[] keys;
+	private double[] values;
+	private int size;
+	// number of bits of the table index
+	private int bits;
+	private int threshold;
+
+	/**
+	 * A map returning {@link Double#NaN} for missing keys
+	 */
+	public ObjectDoubleMap() {
+		this(DEFAULT_CAPACITY, Double.NaN);
+	}
+
+	/**
+	 *
+	 * @param expectedSize
+	 *            the number of mappings to hold without resizing
+	 * @param missingValue
+	 *            the value returned by {@link #get(Object)} for missing keys
+	 * @throws IllegalArgumentException
+	 *             if expectedSize is larger than {@link #MAX_SIZE}
+	 */
+	public ObjectDoubleMap(int expectedSize, double missingValue) {
+		if (expectedSize > MAX_SIZE) {
+			throw new IllegalArgumentException("Expected size " + expectedSize + " is larger than " + MAX_SIZE);
+		}
+		this.missingValue = missingValue;
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity * LOAD_FACTOR < expectedSize) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	/**
+	 * @return the number of mappings
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return <code>true</code> if there are no mappings
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @param key
+	 * @return the value of the key or the missing value of this map
+	 */
+	public double get(Object key) {
+		return getOrDefault(key, missingValue);
+	}
+
+	/**
+	 * @param key
+	 * @param defaultValue
+	 * @return the value of the key or defaultValue
+	 */
+	public double getOrDefault(Object key, double defaultValue) {
+		final int slot = slot(key);
+		return keys[slot] == null ? defaultValue : values[slot];
+	}
+
+	/**
+	 * @param key
+	 * @return <code>true</code> if the key is mapped
+	 */
+	public boolean containsKey(Object key) {
+		return keys[slot(key)] != null;
+	}
+
+	/**
+	 * Maps key to value, replacing any previous value
+	 *
+	 * @param key
+	 * @param value
+	 * @return the previous value or the missing value of this map
+	 * @throws IllegalStateException
+	 *             if the map already holds {@link #MAX_SIZE} mappings
+	 */
+	public double put(K key, double value) {
+
+		if (key == null) {
+			throw new NullPointerException("null keys are not supported");
+		}
+
+		int slot = slot(key);
+		if (keys[slot] != null) {
+			final double previous = values[slot];
+			values[slot] = value;
+			return previous;
+		}
+
+		if (size >= threshold) {
+			if (keys.length == MAX_CAPACITY) {
+				throw new IllegalStateException("Map is full with " + size + " mappings");
+			}
+			allocate(keys.length << 1);
+			slot = slot(key);
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+
+		return missingValue;
+	}
+
+	/**
+	 * Performs the action for each mapping, in no particular order
+	 *
+	 * @param action
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(ObjDoubleConsumer<? super K> action) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null) {
+				action.accept((K) keys[i], values[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return a copy of the mapped values, in no particular order
+	 */
+	public double[] values() {
+		final double[] copy = new double[size];
+		int j = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null) {
+				copy[j++] = values[i];
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Removes all mappings, keeping the capacity
+	 */
+	public void clear() {
+		Arrays.fill(keys, null);
+		size = 0;
+	}
+
+	/**
+	 * @return the slot of the key, or the empty slot where it would go
+	 */
+	private int slot(Object key) {
+		final int mask = keys.length - 1;
+		int slot = (key.hashCode() * MIX) >>> (Integer.SIZE - bits);
+		Object candidate;
+		while ((candidate = keys[slot]) != null && !candidate.equals(key)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * (Re)allocates the table and re-inserts the existing mappings
+	 */
+	private void allocate(int capacity) {
+
+		final Object[] oldKeys = keys;
+		final double[] oldValues = values;
+
+		keys = new Object[capacity];
+		values = new double[capacity];
+		bits = Integer.numberOfTrailingZeros(capacity);
+		threshold = (int) (capacity * LOAD_FACTOR);
+
+		if (oldKeys != null) {
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != null) {
+					final int slot = slot(oldKeys[i]);
+					keys[slot] = oldKeys[i];
+					values[slot] = oldValues[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder s = new StringBuilder("{");
+		forEach(new ObjDoubleConsumer<K>() {
+			public void accept(K key, double value) {
+				if (s.length() > 1) {
+					s.append(", ");
+				}
+				s.append(key).append('=').append(value);
+			}
+		});
+		return s.append('}').toString();
+	}
+}
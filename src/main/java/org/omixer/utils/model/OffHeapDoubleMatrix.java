@@ -0,0 +1,235 @@
+package org.omixer.utils.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.omixer.utils.utils.BufferUtils;
+
+/**
+ *
+ * A matrix of doubles stored outside of the heap, column by column, in memory
+ * mapped regions of a scratch file. The operating system pages the values in
+ * and out, so matrices larger than the heap, or than the physical memory, can
+ * be loaded without growing the heap or the GC pauses.
+ *
+ * Each region holds whole columns, offsets within the matrix are longs. The
+ * regions are unmapped and the scratch file deleted on {@link #close()}, the
+ * matrix must not be accessed, from any thread, once closed.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+public final class OffHeapDoubleMatrix implements Matrix, Closeable {
+
+	static final long REGION_SIZE = 1L << 30;
+
+	private final String[] rowLabels;
+	private final String[] columnLabels;
+	private final Map<String, Integer> columnIndexes;
+	private final long columnLength;
+	private final int columnsPerRegion;
+	// scratch file to delete on close, null if it was deleted once mapped
+	private final File scratch;
+
+	private ByteBuffer[] regions;
+
+	private OffHeapDoubleMatrix(String[] rowLabels, String[] columnLabels, ByteBuffer[] regions,
+			int columnsPerRegion, File scratch) {
+		this.rowLabels = rowLabels;
+		this.columnLabels = columnLabels;
+		this.regions = regions;
+		this.columnsPerRegion = columnsPerRegion;
+		this.columnLength = (long) rowLabels.length * Double.BYTES;
+		this.scratch = scratch;
+		this.columnIndexes = new HashMap<String, Integer>(columnLabels.length * 2);
+		for (int i = 0; i < columnLabels.length; i++) {
+			// as with a map, a duplicated label refers to its last column
+			columnIndexes.put(columnLabels[i], i);
+		}
+	}
+
+	/**
+	 * Allocates a matrix of zeros
+	 *
+	 * @param rowLabels
+	 * @param columnLabels
+	 * @param directory
+	 *            where to create the scratch file
+	 * @return
+	 * @throws IOException
+	 */
+	public static OffHeapDoubleMatrix allocate(String[] rowLabels, String[] columnLabels, File directory)
+			throws IOException {
+		return allocate(rowLabels, columnLabels, directory, REGION_SIZE);
+	}
+
+	static OffHeapDoubleMatrix allocate(String[] rowLabels, String[] columnLabels, File directory, long regionSize)
+			throws IOException {
+
+		final long columnLength = (long) rowLabels.length * Double.BYTES;
+		if (columnLength > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many rows to map a column: " + rowLabels.length);
+		}
+		final int columnsPerRegion = (int) Math.max(1, Math.min(columnLabels.length,
+				regionSize / Math.max(1, columnLength)));
+		final int regionCount = (columnLabels.length + columnsPerRegion - 1) / columnsPerRegion;
+
+		final File scratch = File.createTempFile("matrix", ".offheap", directory);
+		final ByteBuffer[] regions = new ByteBuffer[regionCount];
+		try (RandomAccessFile file = new RandomAccessFile(scratch, "rw")) {
+			final FileChannel channel = file.getChannel();
+			for (int r = 0; r < regionCount; r++) {
+				final int columns = Math.min(columnsPerRegion, columnLabels.length - r * columnsPerRegion);
+				// mapping past the end grows the file, sparsely and with zeros
+				regions[r] = channel.map(MapMode.READ_WRITE, r * columnsPerRegion * columnLength,
+						columns * columnLength).order(ByteOrder.nativeOrder());
+			}
+		} catch (IOException | RuntimeException e) {
+			unmap(regions);
+			scratch.delete();
+			throw e;
+		}
+
+		// regions stay mapped once the file is unlinked, where the platform allows it
+		final boolean deleted = scratch.delete();
+		return new OffHeapDoubleMatrix(rowLabels, columnLabels, regions, columnsPerRegion, deleted ? null
+				: scratch);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getRowCount() {
+		return rowLabels.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getColumnCount() {
+		return columnLabels.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String[] getRowLabels() {
+		return rowLabels;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String[] getColumnLabels() {
+		return columnLabels;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getColumnIndex(String columnLabel) {
+		final Integer index = columnIndexes.get(columnLabel);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @param column
+	 * @return a copy of the values of the column
+	 */
+	public double[] getColumn(int column) {
+		final double[] values = new double[rowLabels.length];
+		copyColumn(column, values);
+		return values;
+	}
+
+	/**
+	 * @param columnLabel
+	 * @return a copy of the values of the column or <code>null</code> if there
+	 *         is no such column
+	 */
+	public double[] getColumn(String columnLabel) {
+		final int index = getColumnIndex(columnLabel);
+		return index < 0 ? null : getColumn(index);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void copyColumn(int column, double[] destination) {
+		if (rowLabels.length == 0) {
+			return;
+		}
+		// a duplicate keeps concurrent copies independent
+		final ByteBuffer values = region(column).duplicate().order(ByteOrder.nativeOrder());
+		final int offset = offset(column);
+		values.position(offset);
+		values.limit((int) (offset + columnLength));
+		values.asDoubleBuffer().get(destination, 0, rowLabels.length);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double get(int row, int column) {
+		return region(column).getDouble(offset(column) + index(row));
+	}
+
+	/**
+	 * @param row
+	 * @param column
+	 * @param value
+	 */
+	public void set(int row, int column, double value) {
+		region(column).putDouble(offset(column) + index(row), value);
+	}
+
+	/**
+	 * Unmaps the regions and deletes the scratch file
+	 */
+	public void close() {
+		if (regions == null) {
+			return;
+		}
+		final ByteBuffer[] mapped = regions;
+		regions = null;
+		unmap(mapped);
+		if (scratch != null) {
+			scratch.delete();
+		}
+	}
+
+	private ByteBuffer region(int column) {
+		if (regions == null) {
+			throw new IllegalStateException("Closed matrix");
+		}
+		if (column < 0 || column >= columnLabels.length) {
+			throw new IndexOutOfBoundsException("Column: " + column + ", Columns: " + columnLabels.length);
+		}
+		return regions[column / columnsPerRegion];
+	}
+
+	private int offset(int column) {
+		return (int) ((column % columnsPerRegion) * columnLength);
+	}
+
+	private int index(int row) {
+		if (row < 0 || row >= rowLabels.length) {
+			throw new IndexOutOfBoundsException("Row: " + row + ", Rows: " + rowLabels.length);
+		}
+		return row * Double.BYTES;
+	}
+
+	private static void unmap(ByteBuffer[] buffers) {
+		for (ByteBuffer buffer : buffers) {
+			BufferUtils.unmap(buffer);
+		}
+	}
+}
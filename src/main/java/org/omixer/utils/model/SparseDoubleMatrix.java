@@ -0,0 +1,309 @@
+package org.omixer.utils.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * A read only sparse matrix of doubles keeping only the non zero cells, both
+ * in compressed sparse rows (CSR) and compressed sparse columns (CSC): the
+ * cells of a row, or of a column, are contiguous <code>int[]</code> indices
+ * and <code>double[]</code> values. Memory use and iterations scale with the
+ * number of non zero cells instead of the size of the matrix.
+ *
+ * Cells that are not stored read as 0. Instances are built by a
+ * {@link Builder} deciding which values are zero.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+public final class SparseDoubleMatrix implements Matrix {
+
+	/**
+	 * Receives the non zero cells of a matrix
+	 */
+	public interface CellVisitor {
+
+		/**
+		 * @param row
+		 * @param column
+		 * @param value
+		 */
+		void visit(int row, int column, double value);
+	}
+
+	private final String[] rowLabels;
+	private final String[] columnLabels;
+	private final Map<String, Integer> columnIndexes;
+
+	// CSR: the cells of row r are at [rowStarts[r], rowStarts[r + 1])
+	private final int[] rowStarts;
+	private final int[] rowColumns;
+	private final double[] rowValues;
+
+	// CSC: the cells of column c are at [columnStarts[c], columnStarts[c + 1])
+	private final int[] columnStarts;
+	private final int[] columnRows;
+	private final double[] columnValues;
+
+	private SparseDoubleMatrix(String[] rowLabels, String[] columnLabels, int[] rowStarts, int[] rowColumns,
+			double[] rowValues) {
+
+		this.rowLabels = rowLabels;
+		this.columnLabels = columnLabels;
+		this.rowStarts = rowStarts;
+		this.rowColumns = rowColumns;
+		this.rowValues = rowValues;
+
+		this.columnIndexes = new HashMap<String, Integer>(columnLabels.length * 2);
+		for (int i = 0; i < columnLabels.length; i++) {
+			// as with a map, a duplicated label refers to its last column
+			columnIndexes.put(columnLabels[i], i);
+		}
+
+		// transpose with a counting sort, rows stay sorted within each column
+		final int cells = rowColumns.length;
+		columnStarts = new int[columnLabels.length + 1];
+		for (int i = 0; i < cells; i++) {
+			columnStarts[rowColumns[i] + 1]++;
+		}
+		for (int c = 0; c < columnLabels.length; c++) {
+			columnStarts[c + 1] += columnStarts[c];
+		}
+		columnRows = new int[cells];
+		columnValues = new double[cells];
+		final int[] next = Arrays.copyOf(columnStarts, columnLabels.length);
+		for (int r = 0; r < rowLabels.length; r++) {
+			for (int i = rowStarts[r]; i < rowStarts[r + 1]; i++) {
+				final int slot = next[rowColumns[i]]++;
+				columnRows[slot] = r;
+				columnValues[slot] = rowValues[i];
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getRowCount() {
+		return rowLabels.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getColumnCount() {
+		return columnLabels.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String[] getRowLabels() {
+		return rowLabels;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String[] getColumnLabels() {
+		return columnLabels;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getColumnIndex(String columnLabel) {
+		final Integer index = columnIndexes.get(columnLabel);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the number of cells stored
+	 */
+	public int getNonZeroCount() {
+		return rowValues.length;
+	}
+
+	/**
+	 * @param row
+	 * @return the number of cells stored in the row
+	 */
+	public int getNonZeroCount(int row) {
+		return rowStarts[row + 1] - rowStarts[row];
+	}
+
+	/**
+	 * @return a dense copy of the column
+	 */
+	public double[] getColumn(int column) {
+		final double[] values = new double[rowLabels.length];
+		copyColumn(column, values);
+		return values;
+	}
+
+	/**
+	 * @return a dense copy of the column
+	 */
+	public double[] getColumn(String columnLabel) {
+		final int column = getColumnIndex(columnLabel);
+		return column < 0 ? null : getColumn(column);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void copyColumn(int column, double[] destination) {
+		Arrays.fill(destination, 0, rowLabels.length, 0d);
+		for (int i = columnStarts[column]; i < columnStarts[column + 1]; i++) {
+			destination[columnRows[i]] = columnValues[i];
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double get(int row, int column) {
+		if (column < 0 || column >= columnLabels.length) {
+			throw new IndexOutOfBoundsException("Column " + column + " of " + columnLabels.length);
+		}
+		final int i = Arrays.binarySearch(rowColumns, rowStarts[row], rowStarts[row + 1], column);
+		return i < 0 ? 0d : rowValues[i];
+	}
+
+	/**
+	 * Visits the non zero cells of a row, by increasing column
+	 *
+	 * @param row
+	 * @param visitor
+	 */
+	public void forEachInRow(int row, CellVisitor visitor) {
+		for (int i = rowStarts[row]; i < rowStarts[row + 1]; i++) {
+			visitor.visit(row, rowColumns[i], rowValues[i]);
+		}
+	}
+
+	/**
+	 * Visits the non zero cells of a column, by increasing row
+	 *
+	 * @param column
+	 * @param visitor
+	 */
+	public void forEachInColumn(int column, CellVisitor visitor) {
+		for (int i = columnStarts[column]; i < columnStarts[column + 1]; i++) {
+			visitor.visit(columnRows[i], column, columnValues[i]);
+		}
+	}
+
+	/**
+	 * Visits all non zero cells, row by row
+	 *
+	 * @param visitor
+	 */
+	public void forEach(CellVisitor visitor) {
+		for (int r = 0; r < rowLabels.length; r++) {
+			forEachInRow(r, visitor);
+		}
+	}
+
+	/**
+	 *
+	 * Builds a {@link SparseDoubleMatrix} row by row, dropping the values
+	 * considered as zero. Instances are not thread safe.
+	 *
+	 */
+	public static final class Builder {
+
+		private static final int INITIAL_CAPACITY = 1024;
+
+		private final String[] columnLabels;
+		private final double zeroTolerance;
+
+		private String[] rowLabels = new String[INITIAL_CAPACITY];
+		private int[] rowStarts = new int[INITIAL_CAPACITY + 1];
+		private int rowCount;
+
+		private int[] columns = new int[INITIAL_CAPACITY];
+		private double[] values = new double[INITIAL_CAPACITY];
+		private int cellCount;
+
+		/**
+		 * A builder keeping the values different from 0
+		 *
+		 * @param columnLabels
+		 */
+		public Builder(String[] columnLabels) {
+			this(columnLabels, 0d);
+		}
+
+		/**
+		 *
+		 * @param columnLabels
+		 * @param zeroTolerance
+		 *            values whose absolute value is at most this tolerance are
+		 *            dropped, {@link Double#NaN} is never dropped
+		 */
+		public Builder(String[] columnLabels, double zeroTolerance) {
+			this.columnLabels = columnLabels;
+			this.zeroTolerance = zeroTolerance;
+		}
+
+		/**
+		 * Starts a new row, following values are put in it
+		 *
+		 * @param label
+		 * @return the index of the row
+		 */
+		public int addRow(String label) {
+			if (rowCount == rowLabels.length) {
+				rowLabels = Arrays.copyOf(rowLabels, rowCount * 2);
+				rowStarts = Arrays.copyOf(rowStarts, rowCount * 2 + 1);
+			}
+			rowLabels[rowCount] = label;
+			rowStarts[rowCount + 1] = cellCount;
+			return rowCount++;
+		}
+
+		/**
+		 * Puts a value in the last row, columns must be put in increasing
+		 * order
+		 *
+		 * @param column
+		 * @param value
+		 * @return this builder
+		 */
+		public Builder put(int column, double value) {
+			if (rowCount == 0) {
+				throw new IllegalStateException("No row was added");
+			}
+			if (column < 0 || column >= columnLabels.length) {
+				throw new IndexOutOfBoundsException("Column " + column + " of " + columnLabels.length);
+			}
+			if (Math.abs(value) <= zeroTolerance) {
+				return this;
+			}
+			if (cellCount > rowStarts[rowCount - 1] && columns[cellCount - 1] >= column) {
+				throw new IllegalArgumentException("Column " + column + " put after column "
+						+ columns[cellCount - 1] + " in row " + rowLabels[rowCount - 1]);
+			}
+			if (cellCount == columns.length) {
+				columns = Arrays.copyOf(columns, cellCount * 2);
+				values = Arrays.copyOf(values, cellCount * 2);
+			}
+			columns[cellCount] = column;
+			values[cellCount++] = value;
+			rowStarts[rowCount] = cellCount;
+			return this;
+		}
+
+		/**
+		 * @return the matrix of the rows added so far
+		 */
+		public SparseDoubleMatrix build() {
+			return new SparseDoubleMatrix(Arrays.copyOf(rowLabels, rowCount), columnLabels,
+					Arrays.copyOf(rowStarts, rowCount + 1), Arrays.copyOf(columns, cellCount),
+					Arrays.copyOf(values, cellCount));
+		}
+	}
+}
@@ -0,0 +1,282 @@
+package org.omixer.utils.model;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ *
+ * A read only multimap of strings in compressed sparse row layout: keys and
+ * values are dictionary encoded to ids over a single pool of distinct strings,
+ * and the value ids of all keys are stored in one <code>int[]</code> where the
+ * values of a key are a range given by an offsets array.
+ *
+ * A repeated value costs one int instead of a list node and a String. The
+ * {@link Map} and {@link List} views are read only and created on demand.
+ * Keys iterate in order of first occurrence.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+public final class StringMultimap extends AbstractMap<String, List<String>> {
+
+	private final StringPool pool;
+	// distinct strings, by id
+	private final String[] strings;
+	// string id of each key, by key index
+	private final int[] keys;
+	// key index of each string id, -1 if the string is not a key
+	private final int[] keyIndexes;
+	// values of key k are values[offsets[k]] to values[offsets[k + 1]]
+	private final int[] offsets;
+	private final int[] values;
+
+	private Set<Entry<String, List<String>>> entrySet;
+
+	private StringMultimap(StringPool pool, int[] keys, int[] offsets, int[] values) {
+		this.pool = pool;
+		this.strings = pool.strings();
+		this.keys = keys;
+		this.offsets = offsets;
+		this.values = values;
+		this.keyIndexes = new int[strings.length];
+		Arrays.fill(keyIndexes, -1);
+		for (int k = 0; k < keys.length; k++) {
+			keyIndexes[keys[k]] = k;
+		}
+	}
+
+	/**
+	 * @return the number of keys
+	 */
+	@Override
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		return keyIndex(key) >= 0;
+	}
+
+	/**
+	 * @param key
+	 * @return a read only view of the values of the key in insertion order, or
+	 *         <code>null</code> if there is no such key
+	 */
+	@Override
+	public List<String> get(Object key) {
+		final int k = keyIndex(key);
+		return k < 0 ? null : new Values(offsets[k], offsets[k + 1]);
+	}
+
+	/**
+	 * @param key
+	 * @return the number of values of the key, 0 if there is no such key
+	 */
+	public int getValueCount(Object key) {
+		final int k = keyIndex(key);
+		return k < 0 ? 0 : offsets[k + 1] - offsets[k];
+	}
+
+	/**
+	 * @return the number of values of all keys
+	 */
+	public int getValueCount() {
+		return values.length;
+	}
+
+	/**
+	 * @return the number of distinct keys and values
+	 */
+	public int getDistinctStringCount() {
+		return strings.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Entry<String, List<String>>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new AbstractSet<Entry<String, List<String>>>() {
+
+				@Override
+				public int size() {
+					return keys.length;
+				}
+
+				@Override
+				public Iterator<Entry<String, List<String>>> iterator() {
+					return new Iterator<Entry<String, List<String>>>() {
+
+						private int k;
+
+						public boolean hasNext() {
+							return k < keys.length;
+						}
+
+						public Entry<String, List<String>> next() {
+							if (k == keys.length) {
+								throw new NoSuchElementException();
+							}
+							final Entry<String, List<String>> entry = new SimpleImmutableEntry<String, List<String>>(
+									strings[keys[k]], new Values(offsets[k], offsets[k + 1]));
+							k++;
+							return entry;
+						}
+					};
+				}
+			};
+		}
+		return entrySet;
+	}
+
+	private int keyIndex(Object key) {
+		final int id = pool.id(key);
+		return id < 0 ? -1 : keyIndexes[id];
+	}
+
+	/**
+	 * A range of the values array
+	 */
+	private final class Values extends AbstractList<String> implements RandomAccess {
+
+		private final int from;
+		private final int to;
+
+		private Values(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public String get(int index) {
+			if (index < 0 || index >= to - from) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+			}
+			return strings[values[from + index]];
+		}
+
+		@Override
+		public int size() {
+			return to - from;
+		}
+	}
+
+	/**
+	 *
+	 * Builds a {@link StringMultimap} in a single pass over key value pairs,
+	 * the values of a key do not need to be contiguous. Pairs are kept as two
+	 * ids and laid out by key with a counting sort on {@link #build()}.
+	 *
+	 */
+	public static final class Builder {
+
+		private static final int INITIAL_CAPACITY = 1024;
+
+		private final StringPool pool = new StringPool();
+		// string id to key index, grown with the pool
+		private int[] keyIndexes = new int[INITIAL_CAPACITY];
+		private int[] keys = new int[INITIAL_CAPACITY];
+		private int keyCount;
+
+		// key index and value id of each pair
+		private int[] pairKeys = new int[INITIAL_CAPACITY];
+		private int[] pairValues = new int[INITIAL_CAPACITY];
+		private int pairCount;
+
+		public Builder() {
+			Arrays.fill(keyIndexes, -1);
+		}
+
+		/**
+		 * Registers a key, without values if it has none
+		 *
+		 * @param key
+		 * @return the index of the key
+		 */
+		public int addKey(String key) {
+			final int id = pool.intern(key);
+			if (id >= keyIndexes.length) {
+				final int length = keyIndexes.length;
+				keyIndexes = Arrays.copyOf(keyIndexes, Math.max(id + 1, length * 2));
+				Arrays.fill(keyIndexes, length, keyIndexes.length, -1);
+			}
+			if (keyIndexes[id] < 0) {
+				if (keyCount == keys.length) {
+					keys = Arrays.copyOf(keys, keyCount * 2);
+				}
+				keys[keyCount] = id;
+				keyIndexes[id] = keyCount++;
+			}
+			return keyIndexes[id];
+		}
+
+		/**
+		 * Adds a value to a key
+		 *
+		 * @param key
+		 * @param value
+		 * @return this builder
+		 */
+		public Builder put(String key, String value) {
+			return put(addKey(key), value);
+		}
+
+		/**
+		 * Adds a value to a key returned by {@link #addKey(String)}
+		 *
+		 * @param keyIndex
+		 * @param value
+		 * @return this builder
+		 */
+		public Builder put(int keyIndex, String value) {
+			if (pairCount == pairKeys.length) {
+				pairKeys = Arrays.copyOf(pairKeys, pairCount * 2);
+				pairValues = Arrays.copyOf(pairValues, pairCount * 2);
+			}
+			pairKeys[pairCount] = keyIndex;
+			pairValues[pairCount++] = pool.intern(value);
+			return this;
+		}
+
+		/**
+		 * The builder must not be used afterwards
+		 *
+		 * @return the multimap
+		 */
+		public StringMultimap build() {
+
+			// count the values of each key, then turn the counts into offsets
+			final int[] offsets = new int[keyCount + 1];
+			for (int i = 0; i < pairCount; i++) {
+				offsets[pairKeys[i] + 1]++;
+			}
+			for (int k = 0; k < keyCount; k++) {
+				offsets[k + 1] += offsets[k];
+			}
+
+			// stable placement keeps the insertion order of the values of a key
+			final int[] next = Arrays.copyOf(offsets, keyCount);
+			final int[] values = new int[pairCount];
+			for (int i = 0; i < pairCount; i++) {
+				values[next[pairKeys[i]]++] = pairValues[i];
+			}
+			pairKeys = null;
+			pairValues = null;
+
+			return new StringMultimap(pool, Arrays.copyOf(keys, keyCount), offsets, values);
+		}
+	}
+}
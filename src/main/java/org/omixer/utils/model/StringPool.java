@@ -0,0 +1,98 @@
+package org.omixer.utils.model;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Dictionary encodes strings: each distinct string gets the next int id.
+ * Open addressing with linear probing over the ids, so there is no entry
+ * object per string.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+final class StringPool {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.5f;
+	// golden ratio multiplier to spread the hash codes
+	private static final int MIX = 0x9E3779B9;
+	private static final int EMPTY = -1;
+
+	private String[] strings = new String[DEFAULT_CAPACITY];
+	private int size;
+	// ids of the strings, EMPTY for free slots
+	private int[] table;
+	private int bits;
+
+	StringPool() {
+		allocate(DEFAULT_CAPACITY * 2);
+	}
+
+	/**
+	 * @param s
+	 * @return the id of the string, a new one if it is not pooled yet
+	 */
+	int intern(String s) {
+		int slot = slot(s);
+		if (table[slot] != EMPTY) {
+			return table[slot];
+		}
+
+		if (size == strings.length) {
+			strings = Arrays.copyOf(strings, size * 2);
+		}
+		if (size >= table.length * LOAD_FACTOR) {
+			allocate(table.length * 2);
+			slot = slot(s);
+		}
+		strings[size] = s;
+		table[slot] = size;
+		return size++;
+	}
+
+	/**
+	 * @param s
+	 * @return the id of the string or -1 if it is not pooled
+	 */
+	int id(Object s) {
+		return s == null ? EMPTY : table[slot(s)];
+	}
+
+	String get(int id) {
+		return strings[id];
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the pooled strings indexed by id, trimmed to the size
+	 */
+	String[] strings() {
+		if (strings.length != size) {
+			strings = Arrays.copyOf(strings, size);
+		}
+		return strings;
+	}
+
+	private int slot(Object s) {
+		final int mask = table.length - 1;
+		int slot = (s.hashCode() * MIX) >>> (Integer.SIZE - bits);
+		int id;
+		while ((id = table[slot]) != EMPTY && !strings[id].equals(s)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void allocate(int capacity) {
+		table = new int[capacity];
+		Arrays.fill(table, EMPTY);
+		bits = Integer.numberOfTrailingZeros(capacity);
+		for (int id = 0; id < size; id++) {
+			table[slot(strings[id])] = id;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package org.omixer.utils.readers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ *
+ * Supplies the bytes scanned by a {@link DelimitedTokenizer}, one window at a
+ * time
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+interface ByteSource extends Closeable {
+
+	/**
+	 * Moves to the window starting at from. Offsets are absolute and never go
+	 * back before the start of the previous window
+	 *
+	 * @param from
+	 * @param minLength
+	 *            the number of bytes after from that were already in the
+	 *            previous window
+	 * @return a little endian buffer of the bytes starting at from, holding
+	 *         more than minLength bytes unless the source ends before
+	 * @throws IOException
+	 */
+	ByteBuffer window(long from, int minLength) throws IOException;
+}
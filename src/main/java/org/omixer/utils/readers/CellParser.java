@@ -0,0 +1,36 @@
+package org.omixer.utils.readers;
+
+/**
+ * 
+ * Converts matrix cells to values of type V. Implementations are resolved
+ * once, before reading, so converting a cell is a plain method call
+ * 
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ * 
+ * @param <V>
+ */
+public interface CellParser<V> {
+
+	/**
+	 * Convert a decoded cell
+	 * 
+	 * @param cell
+	 *            a non empty cell
+	 * @return
+	 */
+	V parse(String cell);
+
+	/**
+	 * Convert a field of the current line of a tokenizer. The default decodes
+	 * the field and delegates to {@link #parse(String)}, implementations can
+	 * override it to read the field in place
+	 * 
+	 * @param tokenizer
+	 * @param field
+	 *            the index of a non empty field
+	 * @return
+	 */
+	default V parse(DelimitedTokenizer tokenizer, int field) {
+		return parse(tokenizer.getString(field));
+	}
+}
@@ -0,0 +1,752 @@
+package org.omixer.utils.readers;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ *
+ * A line and field tokenizer over a memory mapped file.
+ *
+ * Lines are located by scanning the mapped bytes for new lines and fields are
+ * only recorded as offset/length slices of the current line. Nothing is
+ * decoded until a field is requested as a {@link String} or a number, so
+ * callers only pay for the fields they actually use.
+ *
+ * The delimiter follows the {@link String#split(String)} contract: plain
+ * delimiters (and escaped single characters such as <code>\\t</code>) are
+ * matched on the raw bytes, any other regular expression is matched against
+ * a byte view of the line. Byte scanning assumes an ASCII compatible charset.
+ *
+ * Instances are not thread safe.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+public final class DelimitedTokenizer implements Closeable {
+
+	/**
+	 * Size of a mapped window, lines that do not fit grow the window
+	 */
+	static final int DEFAULT_WINDOW_SIZE = 1 << 28;
+
+	private static final byte NEW_LINE = '\n';
+	private static final byte CARRIAGE_RETURN = '\r';
+	private static final String REGEX_META_CHARACTERS = ".$|()[{^?*+\\";
+	private static final int INITIAL_FIELDS = 16;
+
+	private final ByteSource source;
+	private final String delimiter;
+	private final Charset charset;
+	/**
+	 * The literal delimiter bytes, <code>null</code> when the delimiter is a
+	 * regular expression
+	 */
+	private final byte[] literal;
+	private final Matcher matcher;
+	private final LineView lineView;
+
+	private ByteBuffer window;
+	private long windowStart;
+	// absolute position of the next line
+	private long position;
+	private long lineNumber;
+	// time spent waiting for the source, measured once per window
+	private long waitNanos;
+
+	// current line bounds, relative to the window, terminators excluded
+	private int lineStart;
+	private int lineEnd;
+
+	// field slices found so far on the current line, relative to the window
+	private int[] fieldStarts = new int[INITIAL_FIELDS];
+	private int[] fieldEnds = new int[INITIAL_FIELDS];
+	private int fieldCount;
+	// where the scan for the next field resumes
+	private int scanPosition;
+	private boolean split;
+
+	// recyclable buffer for decoding fields
+	private byte[] scratch = new byte[256];
+
+	DelimitedTokenizer(ByteSource source, long start, String delimiter, Charset charset) {
+		this.source = source;
+		this.delimiter = delimiter;
+		this.charset = charset;
+		this.position = start;
+		this.windowStart = start;
+		this.window = ByteBuffer.allocate(0);
+
+		final String literalDelimiter = delimiter == null ? null : toLiteral(delimiter);
+		if (delimiter == null) {
+			// lines are not split, the whole line is a single field
+			this.literal = null;
+			this.matcher = null;
+			this.lineView = null;
+		} else if (literalDelimiter != null) {
+			this.literal = literalDelimiter.getBytes(charset);
+			this.matcher = null;
+			this.lineView = null;
+		} else {
+			this.literal = null;
+			this.lineView = new LineView();
+			this.matcher = Pattern.compile(delimiter).matcher(lineView);
+		}
+	}
+
+	/**
+	 * Opens a tokenizer over the whole file using the platform's default
+	 * charset. Gzip and zip files are detected by their magic bytes and
+	 * decompressed on the fly
+	 *
+	 * @param file
+	 * @param delimiter
+	 *            a delimiter as accepted by {@link String#split(String)} or
+	 *            <code>null</code> to read whole lines
+	 * @return
+	 * @throws IOException
+	 */
+	public static DelimitedTokenizer open(File file, String delimiter) throws IOException {
+		return open(file, delimiter, 0, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Opens a tokenizer over the lines of a byte range of the file, the range
+	 * is expected to start and end on line boundaries as given by
+	 * {@link #splitLines(File, long, int)}. Offsets in compressed files are
+	 * offsets in the decompressed content
+	 *
+	 * @param file
+	 * @param delimiter
+	 * @param start
+	 *            the offset of the first line
+	 * @param end
+	 *            the offset after the last line, capped to the file size
+	 * @return
+	 * @throws IOException
+	 */
+	public static DelimitedTokenizer open(File file, String delimiter, long start, long end) throws IOException {
+
+		final ByteSource source;
+		final InputStream inflated = InflatingByteSource.inflate(file);
+		if (inflated != null) {
+			source = new InflatingByteSource(inflated, start, end);
+		} else {
+			final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			source = new MappedByteSource(channel, Math.min(end, channel.size()), DEFAULT_WINDOW_SIZE);
+		}
+
+		try {
+			return new DelimitedTokenizer(source, start, delimiter, Charset.defaultCharset());
+		} catch (RuntimeException e) {
+			source.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @param file
+	 * @return <code>true</code> if the file is gzip or zip compressed
+	 * @throws IOException
+	 */
+	public static boolean isCompressed(File file) throws IOException {
+		final InputStream inflated = InflatingByteSource.inflate(file);
+		if (inflated == null) {
+			return false;
+		}
+		inflated.close();
+		return true;
+	}
+
+	/**
+	 * Splits the file from start to its end into at most parts ranges of
+	 * roughly equal size, each range ends right after a new line
+	 *
+	 * @param file
+	 * @param start
+	 *            the offset of a line
+	 * @param parts
+	 * @return the range boundaries: range i is [bounds[i], bounds[i + 1])
+	 * @throws IOException
+	 */
+	public static long[] splitLines(File file, long start, int parts) throws IOException {
+		return splitLines(file, start, Long.MAX_VALUE, parts);
+	}
+
+	/**
+	 * Splits the lines between start and end into at most parts ranges of
+	 * roughly equal size, each range but the last ends right after a new line.
+	 * Compressed files can not be split and make a single range
+	 *
+	 * @param file
+	 * @param start
+	 *            the offset of a line
+	 * @param end
+	 *            the offset after the last line, capped to the file size
+	 * @param parts
+	 * @return the range boundaries: range i is [bounds[i], bounds[i + 1])
+	 * @throws IOException
+	 */
+	public static long[] splitLines(File file, long start, long end, int parts) throws IOException {
+
+		if (isCompressed(file)) {
+			return new long[] { start, end };
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+			final long size = Math.min(end, channel.size());
+			final long[] bounds = new long[parts + 1];
+			final ByteBuffer buffer = ByteBuffer.allocate(8192);
+			bounds[0] = Math.min(start, size);
+			int count = 1;
+
+			for (int i = 1; i < parts; i++) {
+				long bound = Math.max(bounds[count - 1], start + (size - start) * i / parts);
+				// move to the byte after the next new line
+				boolean found = false;
+				while (!found && bound < size) {
+					buffer.clear();
+					buffer.limit((int) Math.min(buffer.capacity(), size - bound));
+					final int read = channel.read(buffer, bound);
+					if (read <= 0) {
+						break;
+					}
+					for (int j = 0; j < read && !found; j++) {
+						found = buffer.get(j) == NEW_LINE;
+						bound++;
+					}
+				}
+				if (bound > bounds[count - 1] && bound < size) {
+					bounds[count++] = bound;
+				}
+			}
+			bounds[count++] = size;
+
+			return Arrays.copyOf(bounds, count);
+		}
+	}
+
+	/**
+	 * Resolves a {@link String#split(String)} delimiter to the literal it
+	 * matches, if any
+	 *
+	 * @param regex
+	 * @return the literal matched by regex or <code>null</code> if regex is a
+	 *         real regular expression
+	 */
+	static String toLiteral(String regex) {
+		if (regex.isEmpty()) {
+			return null;
+		}
+		// quoted literal
+		if (regex.startsWith("\\Q") && regex.endsWith("\\E") && regex.indexOf("\\E") == regex.length() - 2) {
+			return regex.length() > 4 ? regex.substring(2, regex.length() - 2) : null;
+		}
+		// escaped single character
+		if (regex.length() == 2 && regex.charAt(0) == '\\') {
+			final char c = regex.charAt(1);
+			if (c == 't') {
+				return "\t";
+			}
+			return Character.isLetterOrDigit(c) ? null : String.valueOf(c);
+		}
+		for (int i = 0; i < regex.length(); i++) {
+			if (REGEX_META_CHARACTERS.indexOf(regex.charAt(i)) >= 0) {
+				return null;
+			}
+		}
+		return regex;
+	}
+
+	/**
+	 * @return the delimiter this tokenizer was created with
+	 */
+	public String getDelimiter() {
+		return delimiter;
+	}
+
+	/**
+	 * @return the (one-based) number of the current line, 0 before the first
+	 *         call to {@link #nextLine()}
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return the absolute offset of the next line
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return the nanoseconds spent waiting for the bytes of the file: mapping
+	 *         windows, or reading and inflating compressed files
+	 */
+	public long getWaitNanos() {
+		return waitNanos;
+	}
+
+	/**
+	 * Moves to the next line
+	 *
+	 * @return <code>false</code> when there are no more lines
+	 * @throws IOException
+	 */
+	public boolean nextLine() throws IOException {
+
+		int start = (int) (position - windowStart);
+		if (start >= window.limit()) {
+			if (!moveWindow(0)) {
+				return false;
+			}
+			start = 0;
+		}
+
+		// bytes of the line already scanned without finding a new line
+		int scanned = 0;
+		int newLine;
+		while ((newLine = indexOfNewLine(start + scanned, window.limit())) < 0) {
+			scanned = window.limit() - start;
+			final boolean more = moveWindow(scanned);
+			start = 0;
+			if (!more) {
+				// last line without a terminator
+				newLine = window.limit();
+				break;
+			}
+		}
+
+		lineStart = start;
+		lineEnd = newLine;
+		if (lineEnd > lineStart && window.get(lineEnd - 1) == CARRIAGE_RETURN) {
+			lineEnd--;
+		}
+		position = windowStart + Math.min(newLine + 1, window.limit());
+		lineNumber++;
+
+		fieldCount = 0;
+		scanPosition = lineStart;
+		split = false;
+
+		return true;
+	}
+
+	/**
+	 * Consumes up to skip lines
+	 *
+	 * @param skip
+	 * @return the number of skipped lines
+	 * @throws IOException
+	 */
+	public int skipLines(int skip) throws IOException {
+		int skipped = 0;
+		while (skipped < skip && nextLine()) {
+			skipped++;
+		}
+		return skipped;
+	}
+
+	/**
+	 * @return the number of fields on the current line, trailing empty fields
+	 *         included as in <code>split(delimiter, -1)</code>
+	 */
+	public int getFieldCount() {
+		splitAll();
+		return fieldCount;
+	}
+
+	/**
+	 * @return the number of fields on the current line without trailing empty
+	 *         fields as in <code>split(delimiter)</code>
+	 */
+	public int getTrimmedFieldCount() {
+		splitAll();
+		if (fieldCount == 1) {
+			return 1;
+		}
+		int count = fieldCount;
+		while (count > 0 && fieldEnds[count - 1] == fieldStarts[count - 1]) {
+			count--;
+		}
+		return count;
+	}
+
+	/**
+	 * @param field
+	 * @return the absolute offset of the field in the file
+	 */
+	public long getFieldOffset(int field) {
+		ensureField(field);
+		return windowStart + fieldStarts[field];
+	}
+
+	/**
+	 * @param field
+	 * @return the length of the field in bytes
+	 */
+	public int getFieldLength(int field) {
+		ensureField(field);
+		return fieldEnds[field] - fieldStarts[field];
+	}
+
+	/**
+	 * @param field
+	 * @return <code>true</code> if the field has no content
+	 */
+	public boolean isEmpty(int field) {
+		return getFieldLength(field) == 0;
+	}
+
+	/**
+	 * Reads a byte of a field without decoding it
+	 *
+	 * @param field
+	 * @param index
+	 *            the index of the byte in the field
+	 * @return
+	 */
+	public byte getByte(int field, int index) {
+		ensureField(field);
+		if (index < 0 || index >= fieldEnds[field] - fieldStarts[field]) {
+			throw new IndexOutOfBoundsException("Index " + index + " of field " + field + " of line " + lineNumber);
+		}
+		return window.get(fieldStarts[field] + index);
+	}
+
+	/**
+	 * Compares the start of a field to encoded bytes, without decoding the
+	 * field
+	 *
+	 * @param field
+	 * @param prefix
+	 * @return <code>true</code> if the field starts with the bytes
+	 */
+	public boolean startsWith(int field, byte[] prefix) {
+		ensureField(field);
+		final int from = fieldStarts[field];
+		if (fieldEnds[field] - from < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (window.get(from + i) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compares a field to encoded bytes, without decoding the field
+	 *
+	 * @param field
+	 * @param bytes
+	 * @return <code>true</code> if the field is made of the bytes
+	 */
+	public boolean fieldEquals(int field, byte[] bytes) {
+		return getFieldLength(field) == bytes.length && startsWith(field, bytes);
+	}
+
+	/**
+	 * Decodes a field
+	 *
+	 * @param field
+	 * @return
+	 */
+	public String getString(int field) {
+		ensureField(field);
+		return decode(fieldStarts[field], fieldEnds[field]);
+	}
+
+	/**
+	 * Parses a field as a double, in place. Results are identical to
+	 * {@link Double#parseDouble(String)}
+	 *
+	 * @param field
+	 * @return
+	 * @throws NumberFormatException
+	 *             if the field is not a number
+	 */
+	public double getDouble(int field) {
+		return getDouble(field, DoubleParser.STRICT);
+	}
+
+	/**
+	 * Parses a field as a double, in place
+	 *
+	 * @param field
+	 * @param parser
+	 *            handles the sentinels such as empty or <code>NA</code> cells
+	 * @return
+	 * @throws NumberFormatException
+	 *             if the field is neither a sentinel nor a number
+	 */
+	public double getDouble(int field, DoubleParser parser) {
+		ensureField(field);
+		return parser.parse(window, fieldStarts[field], fieldEnds[field]);
+	}
+
+	/**
+	 * Parses a field as a decimal int, in place
+	 *
+	 * @param field
+	 * @return
+	 * @throws NumberFormatException
+	 *             if the field is not an int
+	 */
+	public int getInt(int field) {
+		final long value = getLong(field);
+		if (value != (int) value) {
+			throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Parses a field as a decimal long, in place. Fields that are not plain
+	 * optionally negative digits fall back to {@link Long#parseLong(String)}
+	 *
+	 * @param field
+	 * @return
+	 * @throws NumberFormatException
+	 *             if the field is not a long
+	 */
+	public long getLong(int field) {
+		ensureField(field);
+		final int from = fieldStarts[field];
+		final int to = fieldEnds[field];
+
+		int i = from;
+		final boolean negative = i < to && window.get(i) == '-';
+		if (negative) {
+			i++;
+		}
+		// up to 18 digits can not overflow
+		if (i == to || to - i > 18) {
+			return Long.parseLong(getString(field));
+		}
+
+		long value = 0;
+		for (; i < to; i++) {
+			final int digit = window.get(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return Long.parseLong(getString(field));
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * @return the current line without its terminator
+	 */
+	public String getLine() {
+		return decode(lineStart, lineEnd);
+	}
+
+	/**
+	 * Decodes all fields of the current line
+	 *
+	 * @param keepTrailingEmpty
+	 *            <code>true</code> to behave as <code>split(delimiter, -1)</code>
+	 *            , <code>false</code> as <code>split(delimiter)</code>
+	 * @return
+	 */
+	public String[] getStrings(boolean keepTrailingEmpty) {
+		final int count = keepTrailingEmpty ? getFieldCount() : getTrimmedFieldCount();
+		final String[] strings = new String[count];
+		for (int i = 0; i < count; i++) {
+			strings[i] = decode(fieldStarts[i], fieldEnds[i]);
+		}
+		return strings;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void close() throws IOException {
+		source.close();
+		// a mapped window is unmapped by the source, fields can not be read anymore
+		window = ByteBuffer.allocate(0);
+		fieldCount = 0;
+		split = true;
+	}
+
+	private String decode(int from, int to) {
+		final int length = to - from;
+		if (scratch.length < length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		for (int i = 0; i < length; i++) {
+			scratch[i] = window.get(from + i);
+		}
+		return new String(scratch, 0, length, charset);
+	}
+
+	/**
+	 * Moves the window to the next line, keeping the bytes already scanned
+	 *
+	 * @return <code>false</code> if there are no bytes after the scanned ones
+	 */
+	private boolean moveWindow(int scanned) throws IOException {
+		final long start = System.nanoTime();
+		final ByteBuffer next = source.window(position, scanned);
+		waitNanos += System.nanoTime() - start;
+		window = next;
+		windowStart = position;
+		return next.limit() > scanned;
+	}
+
+	/**
+	 * Finds the next new line, eight bytes at a time
+	 */
+	private int indexOfNewLine(int from, int to) {
+		int i = from;
+		for (; i + Long.BYTES <= to; i += Long.BYTES) {
+			final long word = window.getLong(i) ^ 0x0A0A0A0A0A0A0A0AL;
+			final long found = (word - 0x0101010101010101L) & ~word & 0x8080808080808080L;
+			if (found != 0) {
+				return i + (Long.numberOfTrailingZeros(found) >>> 3);
+			}
+		}
+		for (; i < to; i++) {
+			if (window.get(i) == NEW_LINE) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void ensureField(int field) {
+		while (fieldCount <= field && !split) {
+			scanField();
+		}
+		if (field >= fieldCount || field < 0) {
+			throw new ArrayIndexOutOfBoundsException("Line " + lineNumber + " has " + fieldCount
+					+ " fields, field " + field + " was requested");
+		}
+	}
+
+	private void splitAll() {
+		while (!split) {
+			scanField();
+		}
+	}
+
+	/**
+	 * Records the next field of the current line
+	 */
+	private void scanField() {
+		if (matcher != null) {
+			splitRegex();
+			return;
+		}
+		if (literal == null) {
+			addField(lineStart, lineEnd);
+			split = true;
+			return;
+		}
+		final int delimiterEnd = indexOfDelimiter(scanPosition);
+		if (delimiterEnd < 0) {
+			addField(scanPosition, lineEnd);
+			split = true;
+		} else {
+			addField(scanPosition, delimiterEnd - literal.length);
+			scanPosition = delimiterEnd;
+		}
+	}
+
+	/**
+	 * @return the position after the next delimiter or -1
+	 */
+	private int indexOfDelimiter(int from) {
+		final byte first = literal[0];
+		final int last = lineEnd - literal.length;
+		outer: for (int i = from; i <= last; i++) {
+			if (window.get(i) == first) {
+				for (int j = 1; j < literal.length; j++) {
+					if (window.get(i + j) != literal[j]) {
+						continue outer;
+					}
+				}
+				return i + literal.length;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Splits the whole line as {@link Pattern#split(CharSequence, int)} does
+	 */
+	private void splitRegex() {
+		lineView.set(lineStart, lineEnd);
+		matcher.reset();
+		int index = 0;
+		while (matcher.find()) {
+			// no leading empty field for a zero-width match at the beginning
+			if (index == 0 && matcher.start() == 0 && matcher.start() == matcher.end()) {
+				continue;
+			}
+			addField(lineStart + index, lineStart + matcher.start());
+			index = matcher.end();
+		}
+		addField(lineStart + index, lineEnd);
+		split = true;
+	}
+
+	private void addField(int from, int to) {
+		if (fieldCount == fieldStarts.length) {
+			fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+			fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+		}
+		fieldStarts[fieldCount] = from;
+		fieldEnds[fieldCount] = to;
+		fieldCount++;
+	}
+
+	/**
+	 * A byte per char view of the current line for regular expression
+	 * delimiters
+	 */
+	private final class LineView implements CharSequence {
+
+		private int from;
+		private int to;
+
+		void set(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		public int length() {
+			return to - from;
+		}
+
+		public char charAt(int index) {
+			return (char) (window.get(from + index) & 0xFF);
+		}
+
+		public CharSequence subSequence(int start, int end) {
+			return toString().substring(start, end);
+		}
+
+		@Override
+		public String toString() {
+			final StringBuilder view = new StringBuilder(length());
+			for (int i = 0; i < length(); i++) {
+				view.append(charAt(i));
+			}
+			return view.toString();
+		}
+	}
+}
@@ -0,0 +1,250 @@
+package org.omixer.utils.readers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 
+ * Parses doubles straight from ASCII bytes, without decoding a String.
+ * 
+ * Plain decimals of up to 18 significant digits, with an optional exponent,
+ * are converted with a single correctly rounded multiplication or division by
+ * an exact power of ten whenever the result is exact (Clinger's fast path).
+ * Anything else, like longer decimals, extreme exponents, hexadecimal or
+ * <code>Infinity</code>, falls back to {@link Double#parseDouble(String)} so
+ * results are always identical to it.
+ * 
+ * Sentinel tokens, like <code>NA</code> or the empty cell, can be configured
+ * to be read as a missing value instead of failing.
+ * 
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ * 
+ */
+public final class DoubleParser {
+
+	/**
+	 * Behaves as {@link Double#parseDouble(String)}: no sentinels
+	 */
+	public static final DoubleParser STRICT = new DoubleParser(Double.NaN);
+	/**
+	 * Reads empty cells as {@link Double#NaN}
+	 */
+	public static final DoubleParser EMPTY_AS_NAN = new DoubleParser(Double.NaN, "");
+
+	private static final int MAX_DIGITS = 18;
+	// largest power of ten exactly representable as a double
+	private static final int MAX_EXACT_POWER = 22;
+	// integers up to 2^53 are exactly representable as doubles
+	private static final long MAX_EXACT_INTEGER = 1L << 53;
+	private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_POWER + 1];
+	static {
+		POWERS_OF_TEN[0] = 1d;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final double missingValue;
+	private final String[] sentinels;
+	private final byte[][] sentinelBytes;
+
+	/**
+	 * 
+	 * @param missingValue
+	 *            the value of sentinel tokens
+	 * @param sentinels
+	 *            ASCII tokens read as the missing value, the empty string
+	 *            stands for empty cells
+	 */
+	public DoubleParser(double missingValue, String... sentinels) {
+		this.missingValue = missingValue;
+		this.sentinels = sentinels.clone();
+		this.sentinelBytes = new byte[sentinels.length][];
+		for (int i = 0; i < sentinels.length; i++) {
+			sentinelBytes[i] = sentinels[i].getBytes(StandardCharsets.US_ASCII);
+		}
+	}
+
+	/**
+	 * @return the value of sentinel tokens
+	 */
+	public double getMissingValue() {
+		return missingValue;
+	}
+
+	/**
+	 * Parses the bytes between from and to of a buffer
+	 * 
+	 * @param buffer
+	 * @param from
+	 *            inclusive absolute index
+	 * @param to
+	 *            exclusive absolute index
+	 * @return
+	 * @throws NumberFormatException
+	 *             if the bytes are neither a sentinel nor a number
+	 */
+	public double parse(ByteBuffer buffer, int from, int to) {
+
+		if (isSentinel(buffer, from, to)) {
+			return missingValue;
+		}
+
+		int i = from;
+		boolean negative = false;
+		if (i < to) {
+			final byte sign = buffer.get(i);
+			if (sign == '-') {
+				negative = true;
+				i++;
+			} else if (sign == '+') {
+				i++;
+			}
+		}
+
+		long significand = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean seenDigit = false;
+
+		// integer part
+		for (; i < to; i++) {
+			final int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9) {
+				break;
+			}
+			seenDigit = true;
+			if (significand != 0 || digit != 0) {
+				if (++digits > MAX_DIGITS) {
+					return fallback(buffer, from, to);
+				}
+				significand = significand * 10 + digit;
+			}
+		}
+
+		// fraction part
+		if (i < to && buffer.get(i) == '.') {
+			for (i++; i < to; i++) {
+				final int digit = buffer.get(i) - '0';
+				if (digit < 0 || digit > 9) {
+					break;
+				}
+				seenDigit = true;
+				if (significand != 0 || digit != 0) {
+					if (++digits > MAX_DIGITS) {
+						return fallback(buffer, from, to);
+					}
+					significand = significand * 10 + digit;
+				}
+				exponent--;
+			}
+		}
+
+		if (!seenDigit) {
+			return fallback(buffer, from, to);
+		}
+
+		// exponent part
+		if (i < to && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+				negativeExponent = buffer.get(i) == '-';
+				i++;
+			}
+			if (i == to) {
+				return fallback(buffer, from, to);
+			}
+			int explicit = 0;
+			for (; i < to; i++) {
+				final int digit = buffer.get(i) - '0';
+				if (digit < 0 || digit > 9) {
+					break;
+				}
+				// saturate, such exponents are out of the fast path anyway
+				explicit = Math.min(explicit * 10 + digit, 10000);
+			}
+			exponent += negativeExponent ? -explicit : explicit;
+		}
+
+		// trailing characters, e.g. type suffixes or white spaces
+		if (i != to) {
+			return fallback(buffer, from, to);
+		}
+
+		if (significand == 0) {
+			return negative ? -0d : 0d;
+		}
+		// the significand must be exact for a single rounding
+		if (significand > MAX_EXACT_INTEGER) {
+			return fallback(buffer, from, to);
+		}
+
+		double value;
+		if (exponent == 0) {
+			value = significand;
+		} else if (exponent < 0 && exponent >= -MAX_EXACT_POWER) {
+			value = significand / POWERS_OF_TEN[-exponent];
+		} else if (exponent > 0 && exponent <= MAX_EXACT_POWER) {
+			value = significand * POWERS_OF_TEN[exponent];
+		} else if (exponent > MAX_EXACT_POWER && exponent <= MAX_EXACT_POWER + MAX_DIGITS) {
+			// move the excess powers to the significand while it stays exact
+			long scaled = significand;
+			for (int e = exponent - MAX_EXACT_POWER; e > 0; e--) {
+				scaled *= 10;
+				if (scaled > MAX_EXACT_INTEGER) {
+					return fallback(buffer, from, to);
+				}
+			}
+			value = scaled * POWERS_OF_TEN[MAX_EXACT_POWER];
+		} else {
+			return fallback(buffer, from, to);
+		}
+
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses a String, for cells that are already decoded
+	 * 
+	 * @param cell
+	 * @return
+	 * @throws NumberFormatException
+	 *             if the cell is neither a sentinel nor a number
+	 */
+	public double parse(String cell) {
+		for (String sentinel : sentinels) {
+			if (sentinel.equals(cell)) {
+				return missingValue;
+			}
+		}
+		return Double.parseDouble(cell);
+	}
+
+	private boolean isSentinel(ByteBuffer buffer, int from, int to) {
+		final int length = to - from;
+		for (byte[] sentinel : sentinelBytes) {
+			if (sentinel.length == length && regionMatches(buffer, from, sentinel)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean regionMatches(ByteBuffer buffer, int from, byte[] bytes) {
+		for (int i = 0; i < bytes.length; i++) {
+			if (buffer.get(from + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static double fallback(ByteBuffer buffer, int from, int to) {
+		final byte[] bytes = new byte[to - from];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(from + i);
+		}
+		return Double.parseDouble(new String(bytes, StandardCharsets.ISO_8859_1));
+	}
+}
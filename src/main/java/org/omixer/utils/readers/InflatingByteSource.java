@@ -0,0 +1,231 @@
+package org.omixer.utils.readers;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ *
+ * Decompresses a gzip or zip file on a dedicated thread which hands filled
+ * chunks over a bounded queue, so inflating and tokenizing overlap. Offsets
+ * are offsets in the decompressed content.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+final class InflatingByteSource implements ByteSource, Runnable {
+
+	static final int CHUNK_SIZE = 1 << 18;
+	private static final int QUEUED_CHUNKS = 4;
+	private static final int STREAM_BUFFER_SIZE = 1 << 16;
+	// marks the end of the decompressed content
+	private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+	private final InputStream in;
+	private final long start;
+	private final long end;
+	private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<ByteBuffer>(QUEUED_CHUNKS);
+	// chunks handed back to the inflater once copied
+	private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<ByteBuffer>(QUEUED_CHUNKS + 2);
+	private final Thread inflater;
+	private volatile IOException failure;
+
+	// the two windows are used in turn, the previous one holds the bytes to keep
+	private ByteBuffer current = ByteBuffer.allocate(0);
+	private ByteBuffer spare = ByteBuffer.allocate(0);
+	private long currentStart;
+	private boolean exhausted;
+
+	/**
+	 *
+	 * @param in
+	 *            the decompressed content
+	 * @param start
+	 *            the offset of the first byte to supply
+	 * @param end
+	 *            the offset after the last byte to supply
+	 */
+	InflatingByteSource(InputStream in, long start, long end) {
+		this.in = in;
+		this.start = start;
+		this.end = end;
+		this.currentStart = start;
+		this.inflater = new Thread(this, "omixer-inflater");
+		this.inflater.setDaemon(true);
+		this.inflater.start();
+	}
+
+	/**
+	 * Detects gzip and zip files by their magic bytes
+	 *
+	 * @param file
+	 * @return the decompressed content of the file (of the first entry of a
+	 *         zip) or <code>null</code> if the file is not compressed
+	 * @throws IOException
+	 */
+	static InputStream inflate(File file) throws IOException {
+
+		final InputStream in = new BufferedInputStream(new FileInputStream(file), STREAM_BUFFER_SIZE);
+		try {
+			in.mark(4);
+			final int b0 = in.read();
+			final int b1 = in.read();
+			final int b2 = in.read();
+			final int b3 = in.read();
+			in.reset();
+
+			if (b0 == 0x1f && b1 == 0x8b) {
+				return new GZIPInputStream(in, STREAM_BUFFER_SIZE);
+			}
+			if (b0 == 'P' && b1 == 'K' && b2 == 3 && b3 == 4) {
+				final ZipInputStream zis = new ZipInputStream(in);
+				ZipEntry entry = zis.getNextEntry();
+				while (entry != null && entry.isDirectory()) {
+					entry = zis.getNextEntry();
+				}
+				return zis;
+			}
+		} catch (IOException | RuntimeException e) {
+			in.close();
+			throw e;
+		}
+
+		in.close();
+		return null;
+	}
+
+	/**
+	 * Inflates chunks until the end of the content or until interrupted
+	 */
+	public void run() {
+		try {
+			skipFully(start);
+			long remaining = end - start;
+			boolean more = true;
+			while (more && remaining > 0) {
+				ByteBuffer chunk = free.poll();
+				if (chunk == null) {
+					chunk = ByteBuffer.allocate(CHUNK_SIZE);
+				}
+				final int length = (int) Math.min(chunk.capacity(), remaining);
+				final int read = readFully(chunk.array(), length);
+				more = read == length;
+				remaining -= read;
+				if (read > 0) {
+					chunk.clear();
+					chunk.limit(read);
+					filled.put(chunk);
+				}
+			}
+		} catch (InterruptedException e) {
+			// closed before the end of the content
+			return;
+		} catch (IOException e) {
+			failure = e;
+		} catch (RuntimeException e) {
+			failure = new IOException(e);
+		}
+
+		try {
+			filled.put(END);
+		} catch (InterruptedException e) {
+			// closed, nobody is waiting for the end
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public ByteBuffer window(long from, int minLength) throws IOException {
+
+		// the bytes of the current window from "from" on are kept
+		final int keepFrom = (int) (from - currentStart);
+		final int keep = current.limit() - keepFrom;
+
+		final ByteBuffer chunk = exhausted ? END : take();
+		final int size = keep + chunk.remaining();
+
+		if (spare.capacity() < size) {
+			spare = ByteBuffer.allocate(Math.max(size, CHUNK_SIZE * 2));
+		}
+		spare.clear();
+		current.position(keepFrom);
+		spare.put(current);
+		spare.put(chunk);
+		spare.flip();
+		if (chunk != END) {
+			free.offer(chunk);
+		}
+
+		final ByteBuffer window = spare;
+		spare = current;
+		current = window;
+		currentStart = from;
+
+		return current.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void close() throws IOException {
+		inflater.interrupt();
+		try {
+			inflater.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			in.close();
+		}
+	}
+
+	private ByteBuffer take() throws IOException {
+		final ByteBuffer chunk;
+		try {
+			chunk = filled.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		if (chunk == END) {
+			exhausted = true;
+			if (failure != null) {
+				throw failure;
+			}
+		}
+		return chunk;
+	}
+
+	private void skipFully(long bytes) throws IOException {
+		long skipped = 0;
+		while (skipped < bytes) {
+			final long n = in.skip(bytes - skipped);
+			if (n <= 0) {
+				return;
+			}
+			skipped += n;
+		}
+	}
+
+	private int readFully(byte[] buffer, int length) throws IOException {
+		int read = 0;
+		while (read < length) {
+			final int n = in.read(buffer, read, length - read);
+			if (n < 0) {
+				break;
+			}
+			read += n;
+		}
+		return read;
+	}
+}
@@ -0,0 +1,65 @@
+package org.omixer.utils.readers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.omixer.utils.utils.BufferUtils;
+
+/**
+ *
+ * Memory maps a file window by window. The previous window is unmapped when
+ * moving to the next one and the current one on close, rather than leaving
+ * them to the garbage collector.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+final class MappedByteSource implements ByteSource {
+
+	private final FileChannel channel;
+	private final long end;
+	private final int windowSize;
+	private ByteBuffer window;
+
+	/**
+	 *
+	 * @param channel
+	 * @param end
+	 *            the offset after the last byte to map
+	 * @param windowSize
+	 *            the size of a mapped window, windows grow to fit longer lines
+	 */
+	MappedByteSource(FileChannel channel, long end, int windowSize) {
+		this.channel = channel;
+		this.end = end;
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public ByteBuffer window(long from, int minLength) throws IOException {
+		long size = Math.max(windowSize, (long) minLength * 2);
+		size = Math.min(Math.min(size, end - from), Integer.MAX_VALUE);
+		if (size <= minLength && from + size < end) {
+			throw new IOException("Line at offset " + from + " is too long to be mapped");
+		}
+		final ByteBuffer next = channel.map(MapMode.READ_ONLY, from, Math.max(0, size)).order(ByteOrder.LITTLE_ENDIAN);
+		// the tokenizer does not keep views of the previous window
+		BufferUtils.unmap(window);
+		window = next;
+		return next;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void close() throws IOException {
+		BufferUtils.unmap(window);
+		window = null;
+		channel.close();
+	}
+}
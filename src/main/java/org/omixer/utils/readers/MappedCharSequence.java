@@ -0,0 +1,228 @@
+package org.omixer.utils.readers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 
+ * A {@link CharSequence} over a memory mapped file, decoded block by block on
+ * access instead of copying the whole content on the heap. Blocks of ASCII
+ * bytes are read as is, other blocks are decoded in a single cached block.
+ * 
+ * The first access indexes the character offset of each block, which decodes
+ * the file once without keeping the result. Supports UTF-8, ISO-8859-1 and
+ * US-ASCII files of up to 2GB. Instances are not thread safe.
+ * 
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ * 
+ */
+public final class MappedCharSequence implements CharSequence {
+
+	static final int BLOCK_SIZE = 1 << 16;
+
+	private final ByteBuffer bytes;
+	private final Charset charset;
+	private final int blockSize;
+
+	// byte and char offsets of the blocks, plus the end of the content
+	private int[] byteOffsets;
+	private int[] charOffsets;
+	private boolean[] ascii;
+	private int blockCount;
+
+	private CharsetDecoder decoder;
+	private char[] block;
+	private int decodedBlock = -1;
+
+	/**
+	 * Maps a file
+	 * 
+	 * @param file
+	 * @param charset
+	 * @throws IOException
+	 *             if the file can not be mapped or is larger than 2GB
+	 * @throws IllegalArgumentException
+	 *             if the charset is not supported
+	 */
+	public MappedCharSequence(File file, Charset charset) throws IOException {
+		this(map(file), charset, BLOCK_SIZE);
+	}
+
+	MappedCharSequence(ByteBuffer bytes, Charset charset, int blockSize) {
+		if (!charset.equals(StandardCharsets.UTF_8) && !charset.equals(StandardCharsets.ISO_8859_1)
+				&& !charset.equals(StandardCharsets.US_ASCII)) {
+			throw new IllegalArgumentException("Unsupported charset " + charset);
+		}
+		this.bytes = bytes;
+		this.charset = charset;
+		this.blockSize = blockSize;
+	}
+
+	private static ByteBuffer map(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too large to map: " + channel.size() + " bytes");
+			}
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int length() {
+		index();
+		return charOffsets[blockCount];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public char charAt(int index) {
+		index();
+		if (index < 0 || index >= charOffsets[blockCount]) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + charOffsets[blockCount]);
+		}
+		int b = Arrays.binarySearch(charOffsets, 0, blockCount, index);
+		if (b < 0) {
+			b = -b - 2;
+		} else {
+			// skip empty blocks, the char is at the start of the next non empty one
+			while (charOffsets[b + 1] == index) {
+				b++;
+			}
+		}
+		if (ascii[b]) {
+			return (char) (bytes.get(byteOffsets[b] + index - charOffsets[b]) & 0xff);
+		}
+		decode(b);
+		return block[index - charOffsets[b]];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length() || start > end) {
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+		}
+		final StringBuilder s = new StringBuilder(end - start);
+		for (int i = start; i < end; i++) {
+			s.append(charAt(i));
+		}
+		return s.toString();
+	}
+
+	/**
+	 * Decodes the whole content
+	 */
+	@Override
+	public String toString() {
+		final ByteBuffer content = bytes.duplicate();
+		content.clear();
+		return charset.decode(content).toString();
+	}
+
+	/**
+	 * Splits the content in blocks ending on character boundaries and counts
+	 * their characters
+	 */
+	private void index() {
+		if (charOffsets != null) {
+			return;
+		}
+
+		final int size = bytes.capacity();
+		final int capacity = size / blockSize + 2;
+		byteOffsets = new int[capacity];
+		charOffsets = new int[capacity];
+		ascii = new boolean[capacity];
+
+		int start = 0;
+		int chars = 0;
+		int b = 0;
+		while (start < size) {
+			final int end = blockEnd(start, size);
+			if (b + 1 == byteOffsets.length) {
+				// blocks ending on a character boundary may be shorter
+				byteOffsets = Arrays.copyOf(byteOffsets, byteOffsets.length << 1);
+				charOffsets = Arrays.copyOf(charOffsets, charOffsets.length << 1);
+				ascii = Arrays.copyOf(ascii, ascii.length << 1);
+			}
+			byteOffsets[b] = start;
+			charOffsets[b] = chars;
+			ascii[b] = isAscii(start, end);
+			chars += ascii[b] ? end - start : decode(start, end);
+			start = end;
+			b++;
+		}
+		blockCount = b;
+		byteOffsets[b] = size;
+		charOffsets[b] = chars;
+	}
+
+	private int blockEnd(int start, int size) {
+		int end = (int) Math.min((long) start + blockSize, size);
+		if (end < size && charset.equals(StandardCharsets.UTF_8)) {
+			// do not split a multi byte sequence: back up to its lead byte
+			int lead = end;
+			while (lead > start && end - lead < 3 && (bytes.get(lead) & 0xc0) == 0x80) {
+				lead--;
+			}
+			if (lead > start && (bytes.get(lead) & 0xc0) != 0x80) {
+				end = lead;
+			}
+		}
+		return end;
+	}
+
+	private boolean isAscii(int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (bytes.get(i) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void decode(int b) {
+		if (decodedBlock != b) {
+			decode(byteOffsets[b], byteOffsets[b + 1]);
+			decodedBlock = b;
+		}
+	}
+
+	/**
+	 * Decodes bytes in the block buffer
+	 * 
+	 * @return the number of chars
+	 */
+	private int decode(int start, int end) {
+		if (decoder == null) {
+			decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			// a byte decodes to at most one char for the supported charsets
+			block = new char[blockSize];
+		}
+		final ByteBuffer in = bytes.duplicate();
+		in.limit(end);
+		in.position(start);
+		final CharBuffer out = CharBuffer.wrap(block);
+		decoder.reset();
+		decoder.decode(in, out, true);
+		decoder.flush(out);
+		// the cached block is overwritten
+		decodedBlock = -1;
+		return out.position();
+	}
+}
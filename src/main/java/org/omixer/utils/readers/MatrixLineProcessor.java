@@ -1,6 +1,8 @@
 package org.omixer.utils.readers;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * 
@@ -22,5 +24,42 @@ public interface MatrixLineProcessor<T> {
 	 * @return
 	 */
 	List<T> process(String line, String delimiter);
-	
+
+	/**
+	 * Map the current line of a tokenizer to the desired type T. The default
+	 * decodes the whole line and delegates to {@link #process(String, String)},
+	 * implementations can override it to read the fields in place
+	 * 
+	 * @param tokenizer
+	 *            a tokenizer positioned on the line to map
+	 * @return
+	 */
+	default List<T> process(DelimitedTokenizer tokenizer) {
+		return process(tokenizer.getLine(), tokenizer.getDelimiter());
+	}
+
+	/**
+	 * Map the given fields of the current line of a tokenizer, for a
+	 * projection of the matrix columns. The default maps the whole line with
+	 * {@link #process(DelimitedTokenizer)} and keeps the given fields,
+	 * implementations can override it to read the given fields only
+	 * 
+	 * @param tokenizer
+	 *            a tokenizer positioned on the line to map
+	 * @param fields
+	 *            the fields to map, at or after
+	 *            {@link #getHeaderSampleStartIndex()}
+	 * @return one entry per field, in the order of fields
+	 */
+	default List<T> process(DelimitedTokenizer tokenizer, int[] fields) {
+		List<T> entries = process(tokenizer);
+		if (!(entries instanceof RandomAccess)) {
+			entries = new ArrayList<T>(entries);
+		}
+		final List<T> projected = new ArrayList<T>(fields.length);
+		for (int field : fields) {
+			projected.add(entries.get(field - getHeaderSampleStartIndex()));
+		}
+		return projected;
+	}
 }
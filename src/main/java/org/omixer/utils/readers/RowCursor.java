@@ -0,0 +1,134 @@
+package org.omixer.utils.readers;
+
+import java.io.IOException;
+
+/**
+ * 
+ * The current row of a matrix read by a {@link DelimitedTokenizer}. Cells are
+ * read in place from the tokenizer buffer by the index of their data column,
+ * i.e. the first column after the row label is 0.
+ * 
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ * 
+ */
+public final class RowCursor {
+
+	// the row labels are the first field, data columns follow
+	private static final int LABEL_FIELD = 0;
+
+	private final DelimitedTokenizer tokenizer;
+	private final DoubleParser parser;
+	private long rowIndex = -1;
+
+	private RowCursor(DelimitedTokenizer tokenizer, DoubleParser parser) {
+		this.tokenizer = tokenizer;
+		this.parser = parser;
+	}
+
+	/**
+	 * Visits the remaining lines of a tokenizer as rows
+	 * 
+	 * @param tokenizer
+	 *            positioned before the first row
+	 * @param parser
+	 *            parses the cells read by {@link #getDouble(int)}
+	 * @param visitor
+	 * @return the number of rows visited
+	 * @throws IOException
+	 */
+	public static long visit(DelimitedTokenizer tokenizer, DoubleParser parser, RowVisitor visitor)
+			throws IOException {
+		final RowCursor cursor = new RowCursor(tokenizer, parser);
+		while (tokenizer.nextLine()) {
+			cursor.rowIndex++;
+			visitor.visit(cursor);
+		}
+		return cursor.rowIndex + 1;
+	}
+
+	/**
+	 * @return the zero-based index of the row, the header excluded
+	 */
+	public long getRowIndex() {
+		return rowIndex;
+	}
+
+	/**
+	 * @return the line number of the row in the file
+	 */
+	public long getLineNumber() {
+		return tokenizer.getLineNumber();
+	}
+
+	/**
+	 * Decodes the row label
+	 * 
+	 * @return
+	 */
+	public String getRowLabel() {
+		return tokenizer.getString(LABEL_FIELD);
+	}
+
+	/**
+	 * @return the number of data columns of the row, trailing empty cells
+	 *         excluded as with <code>split(delimiter)</code>
+	 */
+	public int getColumnCount() {
+		return tokenizer.getTrimmedFieldCount() - LABEL_FIELD - 1;
+	}
+
+	/**
+	 * @param column
+	 * @return <code>true</code> if the cell has no content
+	 */
+	public boolean isEmpty(int column) {
+		return tokenizer.isEmpty(field(column));
+	}
+
+	/**
+	 * @param column
+	 * @return the cell parsed by the parser of this cursor
+	 * @throws NumberFormatException
+	 *             if the cell is neither a sentinel nor a number
+	 */
+	public double getDouble(int column) {
+		return tokenizer.getDouble(field(column), parser);
+	}
+
+	/**
+	 * @param column
+	 * @return
+	 * @throws NumberFormatException
+	 *             if the cell is not a long
+	 */
+	public long getLong(int column) {
+		return tokenizer.getLong(field(column));
+	}
+
+	/**
+	 * @param column
+	 * @return
+	 * @throws NumberFormatException
+	 *             if the cell is not an int
+	 */
+	public int getInt(int column) {
+		return tokenizer.getInt(field(column));
+	}
+
+	/**
+	 * Decodes a cell
+	 * 
+	 * @param column
+	 * @return
+	 */
+	public String getString(int column) {
+		return tokenizer.getString(field(column));
+	}
+
+	private int field(int column) {
+		if (column < 0) {
+			throw new ArrayIndexOutOfBoundsException("Column " + column);
+		}
+		return LABEL_FIELD + 1 + column;
+	}
+}
@@ -0,0 +1,25 @@
+package org.omixer.utils.readers;
+
+/**
+ * 
+ * Selects the lines to read from their key field, before the rest of the
+ * line is split. A rejected line costs the scan of its key field only.
+ * 
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ * 
+ */
+public interface RowFilter {
+
+	/**
+	 * Decide on the current line of a tokenizer. Implementations should only
+	 * read the key field, raw with {@link DelimitedTokenizer#getByte(int, int)}
+	 * or decoded with {@link DelimitedTokenizer#getString(int)}
+	 * 
+	 * @param tokenizer
+	 *            a tokenizer positioned on the line
+	 * @param field
+	 *            the index of the key field
+	 * @return <code>true</code> to read the line
+	 */
+	boolean accept(DelimitedTokenizer tokenizer, int field);
+}
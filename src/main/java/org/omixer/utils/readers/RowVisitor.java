@@ -0,0 +1,30 @@
+package org.omixer.utils.readers;
+
+/**
+ * 
+ * Push style alternative to {@link MatrixLineProcessor}: visits each row of a
+ * matrix through a single {@link RowCursor} reused for all rows, so nothing
+ * is allocated per row or per cell unless the visitor decodes strings.
+ * 
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ * 
+ */
+public interface RowVisitor {
+
+	/**
+	 * Called once before the rows
+	 * 
+	 * @param columnLabels
+	 *            the labels of the data columns, the row labels header
+	 *            excluded
+	 */
+	default void start(String[] columnLabels) {
+	}
+
+	/**
+	 * Called for each row, the cursor is only valid during the call
+	 * 
+	 * @param row
+	 */
+	void visit(RowCursor row);
+}
@@ -0,0 +1,115 @@
+package org.omixer.utils.readers.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import org.omixer.utils.readers.CellParser;
+import org.omixer.utils.readers.DelimitedTokenizer;
+
+/**
+ * 
+ * Built-in {@link CellParser}s
+ * 
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ * 
+ */
+public final class CellParsers {
+
+	public static final CellParser<String> STRING = new CellParser<String>() {
+		public String parse(String cell) {
+			return cell;
+		}
+
+		public String parse(DelimitedTokenizer tokenizer, int field) {
+			return tokenizer.getString(field);
+		}
+	};
+
+	public static final CellParser<Double> DOUBLE = new CellParser<Double>() {
+		public Double parse(String cell) {
+			return Double.valueOf(cell);
+		}
+
+		public Double parse(DelimitedTokenizer tokenizer, int field) {
+			return tokenizer.getDouble(field);
+		}
+	};
+
+	public static final CellParser<Integer> INTEGER = new CellParser<Integer>() {
+		public Integer parse(String cell) {
+			return Integer.valueOf(cell);
+		}
+
+		public Integer parse(DelimitedTokenizer tokenizer, int field) {
+			return tokenizer.getInt(field);
+		}
+	};
+
+	public static final CellParser<Long> LONG = new CellParser<Long>() {
+		public Long parse(String cell) {
+			return Long.valueOf(cell);
+		}
+
+		public Long parse(DelimitedTokenizer tokenizer, int field) {
+			return tokenizer.getLong(field);
+		}
+	};
+
+	private static final MethodType STRING_CONSTRUCTOR = MethodType.methodType(void.class, String.class);
+	private static final MethodType GENERIC_CONSTRUCTOR = MethodType.methodType(Object.class, String.class);
+
+	/**
+	 * Private Constructor to avoid instantiation
+	 */
+	private CellParsers() {
+	}
+
+	/**
+	 * Resolves the parser of a class: the built-in ones for {@link String},
+	 * {@link Double}, {@link Integer} and {@link Long}, otherwise a parser
+	 * calling the public constructor of the class taking a single
+	 * {@link String}
+	 * 
+	 * @param clazz
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the class has no such constructor
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V> CellParser<V> forClass(final Class<V> clazz) {
+
+		if (clazz == String.class) {
+			return (CellParser<V>) STRING;
+		}
+		if (clazz == Double.class) {
+			return (CellParser<V>) DOUBLE;
+		}
+		if (clazz == Integer.class) {
+			return (CellParser<V>) INTEGER;
+		}
+		if (clazz == Long.class) {
+			return (CellParser<V>) LONG;
+		}
+
+		final MethodHandle constructor;
+		try {
+			constructor = MethodHandles.publicLookup().findConstructor(clazz, STRING_CONSTRUCTOR)
+					.asType(GENERIC_CONSTRUCTOR);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new IllegalArgumentException(clazz.getName() + " has no public constructor taking a String", e);
+		}
+
+		return new CellParser<V>() {
+			public V parse(String cell) {
+				try {
+					return clazz.cast(constructor.invokeExact(cell));
+				} catch (RuntimeException | Error e) {
+					throw e;
+				} catch (Throwable e) {
+					throw new IllegalArgumentException("Can not create a " + clazz.getName() + " from " + cell, e);
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,130 @@
+package org.omixer.utils.readers.impl;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Predicate;
+
+import org.omixer.utils.readers.DelimitedTokenizer;
+import org.omixer.utils.readers.RowFilter;
+
+/**
+ * 
+ * Built-in {@link RowFilter}s. Keys are compared to the raw bytes of the key
+ * field, encoded with the default charset as the tokenizers of
+ * {@link org.omixer.utils.utils.FileUtils} read files.
+ * 
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ * 
+ */
+public final class RowFilters {
+
+	private RowFilters() {
+	}
+
+	/**
+	 * @param prefix
+	 * @return a filter keeping the lines whose key starts with the prefix
+	 */
+	public static RowFilter prefix(String prefix) {
+		final byte[] bytes = prefix.getBytes(Charset.defaultCharset());
+		return new RowFilter() {
+			public boolean accept(DelimitedTokenizer tokenizer, int field) {
+				return tokenizer.startsWith(field, bytes);
+			}
+		};
+	}
+
+	/**
+	 * @param keys
+	 * @return a filter keeping the lines whose key is one of the keys
+	 */
+	public static RowFilter in(Collection<String> keys) {
+		return new KeySet(keys);
+	}
+
+	/**
+	 * @param predicate
+	 *            tests the decoded key
+	 * @return a filter keeping the lines whose key matches the predicate, only
+	 *         the key is decoded
+	 */
+	public static RowFilter matching(final Predicate<String> predicate) {
+		return new RowFilter() {
+			public boolean accept(DelimitedTokenizer tokenizer, int field) {
+				return predicate.test(tokenizer.getString(field));
+			}
+		};
+	}
+
+	/**
+	 * @param filter
+	 * @return a filter keeping the lines rejected by filter
+	 */
+	public static RowFilter not(final RowFilter filter) {
+		return new RowFilter() {
+			public boolean accept(DelimitedTokenizer tokenizer, int field) {
+				return !filter.accept(tokenizer, field);
+			}
+		};
+	}
+
+	/**
+	 * An open addressing set of encoded keys, probed with the hash of the raw
+	 * key field
+	 */
+	private static final class KeySet implements RowFilter {
+
+		private final byte[][] table;
+		private final int mask;
+
+		KeySet(Collection<String> keys) {
+			int capacity = 16;
+			// at most half full
+			while (capacity < keys.size() * 2) {
+				capacity <<= 1;
+			}
+			table = new byte[capacity][];
+			mask = capacity - 1;
+
+			for (String key : keys) {
+				final byte[] bytes = key.getBytes(Charset.defaultCharset());
+				int slot = hash(bytes) & mask;
+				while (table[slot] != null && !Arrays.equals(table[slot], bytes)) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = bytes;
+			}
+		}
+
+		public boolean accept(DelimitedTokenizer tokenizer, int field) {
+			final int length = tokenizer.getFieldLength(field);
+			int hash = 1;
+			for (int i = 0; i < length; i++) {
+				hash = 31 * hash + tokenizer.getByte(field, i);
+			}
+
+			int slot = mix(hash) & mask;
+			byte[] candidate;
+			while ((candidate = table[slot]) != null) {
+				if (tokenizer.fieldEquals(field, candidate)) {
+					return true;
+				}
+				slot = (slot + 1) & mask;
+			}
+			return false;
+		}
+
+		private static int hash(byte[] bytes) {
+			return mix(Arrays.hashCode(bytes));
+		}
+
+		/**
+		 * Spreads the polynomial hash over the low bits used as slot
+		 */
+		private static int mix(int hash) {
+			final int h = hash * 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+	}
+}
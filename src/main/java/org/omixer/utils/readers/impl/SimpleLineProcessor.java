@@ -1,11 +1,12 @@
 package org.omixer.utils.readers.impl;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
 import org.omixer.utils.model.KeyValue;
+import org.omixer.utils.readers.CellParser;
+import org.omixer.utils.readers.DelimitedTokenizer;
 import org.omixer.utils.readers.MatrixLineProcessor;
 
 /**
@@ -19,12 +20,32 @@ public class SimpleLineProcessor<K, V> implements
 		MatrixLineProcessor<KeyValue<K, V>> {
 
 	private final int headerSampleStartIndex = 1;
-	private final Class<K> keyClazz;
-	private final Class<V> valueClazz;
+	private final CellParser<K> keyParser;
+	private final CellParser<V> valueParser;
 
+	/**
+	 * Cells are converted by the {@link CellParsers#forClass(Class)} parsers
+	 * of the classes
+	 * 
+	 * @param class1
+	 *            the key class
+	 * @param class2
+	 *            the value class
+	 * @throws IllegalArgumentException
+	 *             if a class can not be created from a String
+	 */
 	public SimpleLineProcessor(Class<K> class1, Class<V> class2) {
-		this.keyClazz = class1;
-		this.valueClazz = class2;
+		this(CellParsers.forClass(class1), CellParsers.forClass(class2));
+	}
+
+	/**
+	 * 
+	 * @param keyParser
+	 * @param valueParser
+	 */
+	public SimpleLineProcessor(CellParser<K> keyParser, CellParser<V> valueParser) {
+		this.keyParser = keyParser;
+		this.valueParser = valueParser;
 	}
 
 	/**
@@ -37,42 +58,63 @@ public class SimpleLineProcessor<K, V> implements
 		// line tockens
 		String[] tokens = line.split(delimiter);
 
-		try {
-			Constructor<K> c = keyClazz.getDeclaredConstructor(String.class);
-			K key = c.newInstance(tokens[0]);
-
-			Constructor<V> valConstr = valueClazz.getDeclaredConstructor(String.class);
-
-			/**
-			 * 
-			 */
-			for (int i = headerSampleStartIndex; i < tokens.length; i++) {
-				if (!tokens[i].isEmpty()) {
-					res.add(new KeyValue<K, V>(key, valConstr
-							.newInstance((tokens[i]))));
-				} else {
-					res.add(new KeyValue<K, V>(key, null));	
-				}
-				
+		K key = keyParser.parse(tokens[0]);
+
+		for (int i = headerSampleStartIndex; i < tokens.length; i++) {
+			if (!tokens[i].isEmpty()) {
+				res.add(new KeyValue<K, V>(key, valueParser.parse(tokens[i])));
+			} else {
+				res.add(new KeyValue<K, V>(key, null));
+			}
+		}
+
+		return res;
+	}
+
+	/**
+	 * Same as {@link #process(String, String)} but reads the cells in place
+	 * instead of splitting a decoded line
+	 */
+	public List<KeyValue<K, V>> process(DelimitedTokenizer tokenizer) {
+
+		List<KeyValue<K, V>> res = new LinkedList<KeyValue<K, V>>();
+
+		// trailing empty cells are dropped as with split(delimiter)
+		final int fieldCount = tokenizer.getTrimmedFieldCount();
+
+		K key = keyParser.parse(tokenizer, 0);
+
+		for (int i = headerSampleStartIndex; i < fieldCount; i++) {
+			if (!tokenizer.isEmpty(i)) {
+				res.add(new KeyValue<K, V>(key, valueParser.parse(tokenizer, i)));
+			} else {
+				res.add(new KeyValue<K, V>(key, null));
 			}
+		}
 
-		} catch (InstantiationException e) {
-			e.printStackTrace();
-		} catch (IllegalAccessException e) {
-			e.printStackTrace();
-		} catch (SecurityException e) {
-			e.printStackTrace();
-		} catch (NoSuchMethodException e) {
-			e.printStackTrace();
-		} catch (IllegalArgumentException e) {
-			e.printStackTrace();
-		} catch (InvocationTargetException e) {
-			e.printStackTrace();
+		return res;
+	}
+
+	/**
+	 * Same as {@link #process(DelimitedTokenizer)} for the given fields only,
+	 * the other cells are neither decoded nor converted
+	 */
+	public List<KeyValue<K, V>> process(DelimitedTokenizer tokenizer, int[] fields) {
+
+		List<KeyValue<K, V>> res = new ArrayList<KeyValue<K, V>>(fields.length);
+
+		K key = keyParser.parse(tokenizer, 0);
+
+		for (int field : fields) {
+			if (!tokenizer.isEmpty(field)) {
+				res.add(new KeyValue<K, V>(key, valueParser.parse(tokenizer, field)));
+			} else {
+				res.add(new KeyValue<K, V>(key, null));
+			}
 		}
 
 		return res;
 	}
-	
 
 	/**
 	 * {@inheritDoc} 
@@ -0,0 +1,68 @@
+package org.omixer.utils.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+
+/**
+ *
+ * Releases memory mapped buffers now rather than when they are garbage
+ * collected, which pins their address space and, on Windows, locks their file
+ * until a collection that may never come when parsing does not allocate.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+public final class BufferUtils {
+
+	// unmaps a buffer, null if unsupported
+	private static final MethodHandle UNMAP = unmapHandle();
+
+	private BufferUtils() {
+	}
+
+	/**
+	 * Unmaps a buffer returned by {@link java.nio.channels.FileChannel#map},
+	 * or leaves it to the garbage collector if the runtime does not support
+	 * it. The buffer, and any view of it, must not be accessed afterwards from
+	 * any thread.
+	 *
+	 * @param buffer
+	 *            may be <code>null</code>
+	 */
+	public static void unmap(ByteBuffer buffer) {
+		if (UNMAP == null || buffer == null || !buffer.isDirect()) {
+			return;
+		}
+		try {
+			UNMAP.invokeExact(buffer);
+		} catch (Throwable e) {
+			// left to the garbage collector
+		}
+	}
+
+	private static MethodHandle unmapHandle() {
+		final MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try {
+			// Java 9 and later
+			final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			final Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			return lookup.findVirtual(unsafeClass, "invokeCleaner",
+					MethodType.methodType(void.class, ByteBuffer.class)).bindTo(field.get(null));
+		} catch (Exception e) {
+			// not available, try the Java 8 cleaner
+		}
+		try {
+			final MethodHandle cleaner = lookup.unreflect(Class.forName("sun.nio.ch.DirectBuffer").getMethod(
+					"cleaner"));
+			final MethodHandle clean = lookup.unreflect(Class.forName("sun.misc.Cleaner").getMethod("clean"));
+			return MethodHandles.filterReturnValue(cleaner, clean).asType(
+					MethodType.methodType(void.class, ByteBuffer.class));
+		} catch (Exception e) {
+			return null;
+		}
+	}
+}
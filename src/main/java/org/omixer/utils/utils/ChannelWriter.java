@@ -0,0 +1,191 @@
+package org.omixer.utils.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * A {@link Writer} encoding characters in large buffers written straight to a
+ * {@link FileChannel}. The buffers are pooled, so writing many files reuses
+ * the buffers of the writers already closed, up to one pair of buffers per
+ * available processor. Instances are not thread safe.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+final class ChannelWriter extends Writer {
+
+	static final int BUFFER_SIZE = 1 << 18;
+
+	private static final int MAX_POOLED = Runtime.getRuntime().availableProcessors();
+
+	private static final Queue<CharBuffer> CHAR_BUFFERS = new ConcurrentLinkedQueue<CharBuffer>();
+	private static final Queue<ByteBuffer> BYTE_BUFFERS = new ConcurrentLinkedQueue<ByteBuffer>();
+	// bounds of the pool sizes, counted apart as the queues have no constant time size
+	private static final AtomicInteger CHAR_BUFFERS_SIZE = new AtomicInteger();
+	private static final AtomicInteger BYTE_BUFFERS_SIZE = new AtomicInteger();
+
+	private final FileChannel channel;
+	private final CharsetEncoder encoder;
+	private CharBuffer chars;
+	private ByteBuffer bytes;
+
+	/**
+	 * Creates or truncates the file
+	 *
+	 * @param path
+	 * @param charset
+	 * @throws IOException
+	 */
+	ChannelWriter(Path path, Charset charset) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+		// same as an OutputStreamWriter
+		this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		chars = acquire(CHAR_BUFFERS, CHAR_BUFFERS_SIZE);
+		if (chars == null) {
+			chars = CharBuffer.allocate(BUFFER_SIZE);
+		}
+		bytes = acquire(BYTE_BUFFERS, BYTE_BUFFERS_SIZE);
+		if (bytes == null) {
+			// heap buffers take the array fast path of the encoders
+			bytes = ByteBuffer.allocate(BUFFER_SIZE * 2);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(String s, int off, int len) throws IOException {
+		while (len > 0) {
+			final int n = Math.min(len, chars.remaining());
+			s.getChars(off, off + n, chars.array(), chars.arrayOffset() + chars.position());
+			chars.position(chars.position() + n);
+			off += n;
+			len -= n;
+			if (!chars.hasRemaining()) {
+				encode(false);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		while (len > 0) {
+			final int n = Math.min(len, chars.remaining());
+			chars.put(cbuf, off, n);
+			off += n;
+			len -= n;
+			if (!chars.hasRemaining()) {
+				encode(false);
+			}
+		}
+	}
+
+	/**
+	 * Writes already encoded bytes, after the pending characters
+	 *
+	 * @param encoded
+	 * @throws IOException
+	 */
+	void write(ByteBuffer encoded) throws IOException {
+		encode(false);
+		writeBytes();
+		while (encoded.hasRemaining()) {
+			channel.write(encoded);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void flush() throws IOException {
+		encode(false);
+		writeBytes();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		if (chars == null) {
+			return;
+		}
+		try {
+			encode(true);
+			writeBytes();
+		} finally {
+			chars.clear();
+			bytes.clear();
+			release(CHAR_BUFFERS, CHAR_BUFFERS_SIZE, chars);
+			release(BYTE_BUFFERS, BYTE_BUFFERS_SIZE, bytes);
+			chars = null;
+			bytes = null;
+			channel.close();
+		}
+	}
+
+	private static <T> T acquire(Queue<T> pool, AtomicInteger size) {
+		final T buffer = pool.poll();
+		if (buffer != null) {
+			size.decrementAndGet();
+		}
+		return buffer;
+	}
+
+	/**
+	 * Returns the buffer to the pool, or drops it if the pool is full
+	 */
+	private static <T> void release(Queue<T> pool, AtomicInteger size, T buffer) {
+		if (size.incrementAndGet() <= MAX_POOLED) {
+			pool.offer(buffer);
+		} else {
+			size.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Encodes the pending characters, a trailing high surrogate waits for its
+	 * low surrogate unless this is the end of the input
+	 */
+	private void encode(boolean endOfInput) throws IOException {
+		chars.flip();
+		// errors are replaced, so the result is either an underflow or an overflow
+		while (encoder.encode(chars, bytes, endOfInput).isOverflow()) {
+			writeBytes();
+		}
+		if (endOfInput) {
+			while (encoder.flush(bytes).isOverflow()) {
+				writeBytes();
+			}
+		}
+		chars.compact();
+	}
+
+	private void writeBytes() throws IOException {
+		bytes.flip();
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+		bytes.clear();
+	}
+}
@@ -6,12 +6,16 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
+
+import org.omixer.utils.utils.IOEvent.Kind;
 
 public class CompressUtils {
 
@@ -41,7 +45,8 @@ public class CompressUtils {
 	}
 
 	/**
-	 * ZIPs a directory to the given output path
+	 * ZIPs a directory and all its sub directories to the given output path,
+	 * files are compressed concurrently on one thread per available processor
 	 * 
 	 * @param directoryPath
 	 * @param output
@@ -50,51 +55,95 @@ public class CompressUtils {
 	public static final void zipDirectory(String directoryPath, String output)
 			throws IOException {
 
-		try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(output))) {
-			// the directory containing the files to zip
-			final File inputDir = new File(directoryPath);
-			// list of files to zip
-			final File[] files = inputDir.listFiles();
-			// create a buffer to read data in
-			final byte[] buffer = new byte[8192];
-			// append each file to the zip
-			for (File file : files) {
-				try(BufferedInputStream in = new BufferedInputStream(new FileInputStream(file))) {
-					/*
-					 * append the entry for the current file in the zip archive use
-					 * the inputDir name as a prefix to have the files extracted in
-					 * a directory instead of current working directory
-					 */
-					zos.putNextEntry(new ZipEntry(inputDir.getName()
-							+ File.separator + file.getName()));
-					// number of read bytes
-					int read = 0;
-					// read from input stream till the end of stream is reached
-					while ((read = in.read(buffer)) != -1) {
-						// write the newly read bytes to the current ZIP entry
-						zos.write(buffer, 0, read);
-					}
-					// close current zip entry
-					zos.closeEntry();
-					// close input stream
-					in.close();	
-				}
-			}
+		final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime()
+				.availableProcessors());
+		try {
+			zipDirectory(directoryPath, output, executor);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * ZIPs a directory and all its sub directories to the given output path.
+	 * Files are compressed concurrently on the executor then written in path
+	 * order, entries are prefixed by the directory name to have them extracted
+	 * in a directory instead of the current working directory. ZIP64 records
+	 * are used for archives exceeding the classic ZIP limits
+	 * 
+	 * @param directoryPath
+	 * @param output
+	 * @param executor
+	 *            compresses the files, it is left running
+	 * @throws IOException
+	 */
+	public static final void zipDirectory(String directoryPath, String output, ExecutorService executor)
+			throws IOException {
+		final File zip = new File(output);
+		try (IOProbe probe = IOMetrics.start(Kind.COMPRESS, "zipDirectory", zip)) {
+			ParallelZip.zipDirectory(new File(directoryPath), zip, executor, ParallelZip.ZIP64_LIMIT);
+			probe.read(new File(directoryPath));
+			probe.written(zip);
 		}
 	}
 
 	public static final void gzip(String input, String output)
 			throws IOException {
 
-		try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(input));
-				GZIPOutputStream compressor = new GZIPOutputStream(new FileOutputStream(output));) {
+		try (IOProbe probe = IOMetrics.start(Kind.COMPRESS, "gzip", new File(input))) {
+			try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(input));
+					GZIPOutputStream compressor = new GZIPOutputStream(new FileOutputStream(output));) {
 
-			byte[] buffer = new byte[8192];
-			int read = 0;
-			while ((read = in.read(buffer)) != -1) {
-				compressor.write(buffer, 0, read);
+				byte[] buffer = new byte[8192];
+				int read = 0;
+				while ((read = in.read(buffer)) != -1) {
+					compressor.write(buffer, 0, read);
+				}
+				compressor.finish();
 			}
-			compressor.finish();
+			probe.read(new File(input));
+			probe.written(new File(output));
+		}
+	}
+
+	/**
+	 * GZIPs input with several threads: the input is split in blocks that are
+	 * compressed concurrently and written as a single standard gzip stream
+	 * 
+	 * @param input
+	 * @param output
+	 * @param threads
+	 *            the number of compressing threads
+	 * @throws IOException
+	 */
+	public static final void gzip(String input, String output, int threads)
+			throws IOException {
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			gzip(input, output, executor);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * GZIPs input on the given executor: the input is split in blocks that are
+	 * compressed concurrently, each using the end of the previous block as
+	 * dictionary, and written in order as a single standard gzip stream
+	 * 
+	 * @param input
+	 * @param output
+	 * @param executor
+	 *            compresses the blocks, it is left running
+	 * @throws IOException
+	 */
+	public static final void gzip(String input, String output, ExecutorService executor)
+			throws IOException {
+		try (IOProbe probe = IOMetrics.start(Kind.COMPRESS, "gzip", new File(input))) {
+			ParallelGzip.gzip(input, output, executor, ParallelGzip.BLOCK_SIZE);
+			probe.read(new File(input));
+			probe.written(new File(output));
 		}
 	}
 
@@ -103,13 +152,17 @@ public class CompressUtils {
 
 		byte[] buffer = new byte[1024];
 		
-		try (GZIPInputStream gzis = new GZIPInputStream(new FileInputStream(input));
-				FileOutputStream out = new FileOutputStream(output);) {
+		try (IOProbe probe = IOMetrics.start(Kind.DECOMPRESS, "gunzip", new File(input))) {
+			try (GZIPInputStream gzis = new GZIPInputStream(new FileInputStream(input));
+					FileOutputStream out = new FileOutputStream(output);) {
 
-			int len;
-			while ((len = gzis.read(buffer)) > 0) {
-				out.write(buffer, 0, len);
+				int len;
+				while ((len = gzis.read(buffer)) > 0) {
+					out.write(buffer, 0, len);
+				}
 			}
+			probe.read(new File(input));
+			probe.written(new File(output));
 		}
 	}
 
@@ -125,7 +178,8 @@ public class CompressUtils {
 		byte[] buffer = new byte[1024];
 		
 		List<File> unzippedFiles = new ArrayList<File>();
-		try (ZipInputStream zis = new ZipInputStream(
+		try (IOProbe probe = IOMetrics.start(Kind.DECOMPRESS, "unzip", new File(zipFile));
+				ZipInputStream zis = new ZipInputStream(
 						new FileInputStream(zipFile));) {
 
 			// create output directory if not exists
@@ -159,7 +213,76 @@ public class CompressUtils {
 			}
 
 			zis.closeEntry();	
+			probe.read(new File(zipFile));
+			probe.written(unzippedFiles);
 		}
 		return unzippedFiles ;
 	}
+
+	/**
+	 * Extracts all entries of a ZIP archive concurrently
+	 * 
+	 * @param zipFile
+	 * @param outputFolder
+	 * @param threads
+	 *            the number of extracting threads
+	 * @return the extracted files, in archive order
+	 * @throws IOException
+	 */
+	public static final List<File> unzip(String zipFile, String outputFolder, int threads)
+			throws IOException {
+		return unzip(zipFile, outputFolder, null, threads);
+	}
+
+	/**
+	 * Extracts the selected entries of a ZIP archive concurrently
+	 * 
+	 * @param zipFile
+	 * @param outputFolder
+	 * @param entries
+	 *            names or glob patterns (e.g. <code>dir/*.tsv</code>) of the
+	 *            entries to extract, names of existing entries are taken
+	 *            literally, <code>null</code> to extract all entries
+	 * @param threads
+	 *            the number of extracting threads
+	 * @return the extracted files, in archive order
+	 * @throws IOException
+	 */
+	public static final List<File> unzip(String zipFile, String outputFolder, Collection<String> entries,
+			int threads) throws IOException {
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			return unzip(zipFile, outputFolder, entries, executor);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Extracts the selected entries of a ZIP archive on the given executor.
+	 * Entries are located through the central directory, so entries that are
+	 * not selected are never inflated
+	 * 
+	 * @param zipFile
+	 * @param outputFolder
+	 * @param entries
+	 *            names or glob patterns (e.g. <code>dir/*.tsv</code>) of the
+	 *            entries to extract, names of existing entries are taken
+	 *            literally, <code>null</code> to extract all entries
+	 * @param executor
+	 *            extracts the entries, it is left running
+	 * @return the extracted files, in archive order
+	 * @throws IOException
+	 *             if an entry would be extracted outside of outputFolder
+	 */
+	public static final List<File> unzip(String zipFile, String outputFolder, Collection<String> entries,
+			ExecutorService executor) throws IOException {
+		try (IOProbe probe = IOMetrics.start(Kind.DECOMPRESS, "unzip", new File(zipFile))) {
+			final List<File> files = ParallelUnzip.unzip(new File(zipFile), new File(outputFolder), entries, executor);
+			probe.read(new File(zipFile));
+			probe.written(files);
+			return files;
+		}
+	}
 }
@@ -5,19 +5,40 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
-import org.omixer.utils.Constants;
 import org.omixer.utils.exceptions.IncorrectNumberOfEntriesException;
+import org.omixer.utils.model.DoubleMatrix;
+import org.omixer.utils.model.KeyValue;
+import org.omixer.utils.model.ObjectDoubleMap;
+import org.omixer.utils.model.OffHeapDoubleMatrix;
+import org.omixer.utils.model.SparseDoubleMatrix;
+import org.omixer.utils.model.StringMultimap;
+import org.omixer.utils.readers.DelimitedTokenizer;
+import org.omixer.utils.readers.DoubleParser;
+import org.omixer.utils.readers.MappedCharSequence;
 import org.omixer.utils.readers.MatrixLineProcessor;
+import org.omixer.utils.readers.RowCursor;
+import org.omixer.utils.readers.RowFilter;
+import org.omixer.utils.readers.RowVisitor;
+import org.omixer.utils.utils.IOEvent.Kind;
 
 /**
  * Add functionalities not provided by commons-fileUtils
@@ -28,6 +49,7 @@ import org.omixer.utils.readers.MatrixLineProcessor;
 public final class FileUtils {
 
 	private static final String IO_TMP_DIR  = "java.io.tmpdir";
+	private static final int INITIAL_MATRIX_ROWS = 1024;
 
 	/**
 	 * Private Constructor to avoid instantiation
@@ -47,9 +69,12 @@ public final class FileUtils {
 		try (FileInputStream fis = new FileInputStream(sourceFile);
 				FileChannel in = fis.getChannel();
 				FileOutputStream fos = new FileOutputStream(destination);
-				FileChannel out = fos.getChannel();) {
+				FileChannel out = fos.getChannel();
+				IOProbe probe = IOMetrics.start(Kind.COPY, "copy", sourceFile)) {
 
-			in.transferTo(0, sourceFile.length(), out);
+			final long copied = in.transferTo(0, sourceFile.length(), out);
+			probe.read(copied);
+			probe.written(copied);
 		}
 	}
 
@@ -94,17 +119,17 @@ public final class FileUtils {
 			String delimiter, int skip) throws IOException {
 
 		final Map<String, String> keyVals = new HashMap<String, String>();
+		final File input = new File(file);
 				
-		try (BufferedReader lineReader = new BufferedReader(new FileReader(file))) {
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "readKeyValue", input);
+				DelimitedTokenizer tokenizer = probe.track(DelimitedTokenizer.open(input, delimiter))) {
 
 			// this is for the user to handle
-			skip(lineReader, skip);
+			tokenizer.skipLines(skip);
 
-			String[] tokens = null;
-			while (lineReader.ready()) {
-				// as many time as possible and keep trailing characters
-				tokens = lineReader.readLine().split(delimiter, -1);
-				keyVals.put(tokens[0], tokens[1]);
+			while (tokenizer.nextLine()) {
+				// only the first two fields are decoded
+				keyVals.put(tokenizer.getString(0), tokenizer.getString(1));
 			}
 		}
 
@@ -116,21 +141,65 @@ public final class FileUtils {
 
 		final Map<String, Double> keyVals = new HashMap<String, Double>();
 		
-		try (BufferedReader lineReader = new BufferedReader(new FileReader(file))) {
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "readKeyDoubleValue", file);
+				DelimitedTokenizer tokenizer = probe.track(DelimitedTokenizer.open(file, delimiter))) {
 			// this is for the user to handle
-			skip(lineReader, skip);
+			tokenizer.skipLines(skip);
 
-			String[] tokens = null;
-			while (lineReader.ready()) {
-				// as many time as possible and keep trailing characters
-				tokens = lineReader.readLine().split(delimiter, -1);
-				keyVals.put(tokens[0], Double.valueOf(tokens[1]));
+			while (tokenizer.nextLine()) {
+				keyVals.put(tokenizer.getString(0), tokenizer.getDouble(1));
 			}
 		}
 
 		return keyVals;
 	}
 	
+	/**
+	 * Same as {@link #readKeyDoubleValue(File, String, int)} but the values are
+	 * kept as primitive doubles in an open addressing map
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @param skip
+	 * @return an {@link ObjectDoubleMap} returning {@link Double#NaN} for
+	 *         missing keys
+	 * @throws IOException
+	 */
+	public static final ObjectDoubleMap<String> readKeyDoubleMap(File file,
+			String delimiter, int skip) throws IOException {
+		return readKeyDoubleMap(file, delimiter, skip, DoubleParser.STRICT);
+	}
+
+	/**
+	 * Same as {@link #readKeyDoubleMap(File, String, int)} with sentinel values
+	 * such as <code>NA</code> read as the missing value of the parser
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @param skip
+	 * @param parser
+	 * @return an {@link ObjectDoubleMap} returning the missing value of the
+	 *         parser for missing keys
+	 * @throws IOException
+	 */
+	public static final ObjectDoubleMap<String> readKeyDoubleMap(File file,
+			String delimiter, int skip, DoubleParser parser) throws IOException {
+
+		final ObjectDoubleMap<String> keyVals = new ObjectDoubleMap<String>(0, parser.getMissingValue());
+
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "readKeyDoubleMap", file);
+				DelimitedTokenizer tokenizer = probe.track(DelimitedTokenizer.open(file, delimiter))) {
+			// this is for the user to handle
+			tokenizer.skipLines(skip);
+
+			while (tokenizer.nextLine()) {
+				keyVals.put(tokenizer.getString(0), tokenizer.getDouble(1, parser));
+			}
+		}
+
+		return keyVals;
+	}
+
 	/**
 	 * Maps a key value file to a {@link Map}
 	 * 
@@ -146,29 +215,52 @@ public final class FileUtils {
 	 */
 	public static final Map<String, List<String>> readKeyValues(File file,
 			String delimiter, int skip) throws IOException {
+		return readKeyValues(file, delimiter, skip, null);
+	}
+
+	/**
+	 * Same as {@link #readKeyValues(File, String, int)} for the lines whose key
+	 * is accepted by the filter. The values of rejected lines are neither
+	 * split nor decoded
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @param skip
+	 * @param filter
+	 *            see {@link org.omixer.utils.readers.impl.RowFilters},
+	 *            <code>null</code> to read all lines
+	 * @return
+	 * @throws IOException
+	 */
+	public static final Map<String, List<String>> readKeyValues(File file,
+			String delimiter, int skip, RowFilter filter) throws IOException {
 		final Map<String, List<String>> keyValues = new HashMap<String, List<String>>();
 		
-		try (BufferedReader lineReader = new BufferedReader(new FileReader(file))){
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "readKeyValues", file);
+				DelimitedTokenizer tokenizer = probe.track(DelimitedTokenizer.open(file, delimiter))) {
 			// skip lines (skip is the number of lines) 
-			skip(lineReader, skip);
-			// a recyclable object for splitting lines into
-			String[] tockens = null;
+			tokenizer.skipLines(skip);
 			// while there are more lines to read
-			while (lineReader.ready()) {
-				// split 
-				tockens = lineReader.readLine().split(delimiter);
-				// get the values for the current key (tokens[0])
-				List<String> values = keyValues.get(tockens[0]);
+			while (tokenizer.nextLine()) {
+				// only the key is scanned for rejected lines
+				if (filter != null && !filter.accept(tokenizer, 0)) {
+					continue;
+				}
+				// trailing empty fields are ignored as with split(delimiter)
+				final int fieldCount = tokenizer.getTrimmedFieldCount();
+				final String key = tokenizer.getString(0);
+				// get the values for the current key
+				List<String> values = keyValues.get(key);
 				// if this key is observer for the first time
 				if (values == null) {
 					// create a list to hold the values
 					values = new LinkedList<String>();
 					// register the values with the current key
-					keyValues.put(tockens[0], values);
+					keyValues.put(key, values);
 				}
 				//populate the values
-				for (int i = 1; i < tockens.length; i++) {
-					values.add(tockens[i]);
+				for (int i = 1; i < fieldCount; i++) {
+					values.add(tokenizer.getString(i));
 				}
 			}
 		}
@@ -176,20 +268,83 @@ public final class FileUtils {
 		return keyValues;
 	}
 	
+	/**
+	 * Same as {@link #readKeyValues(File, String, int)} but the result is a
+	 * compact read only {@link StringMultimap}: keys and values are
+	 * dictionary encoded, so repeated values cost an int each
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @param skip
+	 * @return
+	 * @throws IOException
+	 */
+	public static final StringMultimap readKeyValuesCompact(File file,
+			String delimiter, int skip) throws IOException {
+
+		final StringMultimap.Builder keyValues = new StringMultimap.Builder();
+
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "readKeyValuesCompact", file);
+				DelimitedTokenizer tokenizer = probe.track(DelimitedTokenizer.open(file, delimiter))) {
+			tokenizer.skipLines(skip);
+			while (tokenizer.nextLine()) {
+				// trailing empty fields are ignored as with split(delimiter)
+				final int fieldCount = tokenizer.getTrimmedFieldCount();
+				final int key = keyValues.addKey(tokenizer.getString(0));
+				for (int i = 1; i < fieldCount; i++) {
+					keyValues.put(key, tokenizer.getString(i));
+				}
+			}
+		}
+
+		return keyValues.build();
+	}
+
+	/**
+	 * Lazily maps each line of a key value file to its key and values, like
+	 * {@link #readKeyValues(File, String, int)} but without merging the values
+	 * of a key occurring on several lines.
+	 * 
+	 * Lines are read as the stream is consumed and a parallel stream splits
+	 * the file in byte ranges. The stream must be closed to release the file
+	 * if it is not fully consumed
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @param skip
+	 * @return
+	 * @throws IOException
+	 */
+	public static final Stream<KeyValue<String, List<String>>> streamKeyValues(File file,
+			String delimiter, int skip) throws IOException {
+
+		return LineSpliterator.stream(file, delimiter, skip,
+				new Function<DelimitedTokenizer, KeyValue<String, List<String>>>() {
+					public KeyValue<String, List<String>> apply(DelimitedTokenizer tokenizer) {
+						// trailing empty fields are ignored as with split(delimiter)
+						final int fieldCount = tokenizer.getTrimmedFieldCount();
+						final List<String> values = new ArrayList<String>(Math.max(0, fieldCount - 1));
+						for (int i = 1; i < fieldCount; i++) {
+							values.add(tokenizer.getString(i));
+						}
+						return new KeyValue<String, List<String>>(tokenizer.getString(0), values);
+					}
+				}, LineSpliterator.MIN_SPLIT_SIZE);
+	}
+
 	public static final <T> Map<String, T> readKeyValuesEngin(File file,
 			String delimiter, int skip, Function<Object[], T> mapFiller)
 			throws IOException {
 
 		final Map<String, T> keyValues = new HashMap<String, T>();
 
-		try (BufferedReader lineReader = new BufferedReader(new FileReader(file))) {
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "readKeyValuesEngin", file);
+				DelimitedTokenizer tokenizer = probe.track(DelimitedTokenizer.open(file, delimiter))) {
 
-			skip(lineReader, skip);
-			String[] tockens = null;
+			tokenizer.skipLines(skip);
 
-			while (lineReader.ready()) {
-				tockens = lineReader.readLine().split(delimiter);
-				mapFiller.apply(new Object[] { keyValues, tockens });
+			while (tokenizer.nextLine()) {
+				mapFiller.apply(new Object[] { keyValues, tokenizer.getStrings(false) });
 			}
 		}
 
@@ -212,66 +367,579 @@ public final class FileUtils {
 	public static final <T> Map<String, List<T>> readMatrix(File file,
 			final String delimiter, MatrixLineProcessor<T> lineProcessor)
 			throws IncorrectNumberOfEntriesException, IOException {
+		return readMatrix(file, delimiter, lineProcessor, null, null, null);
+	}
 
-		// will never be null since the try condition will initialize it or
-		// throw an excption
-		final Map<String, List<T>> matrix;
+	/**
+	 * Same as {@link #readMatrix(File, String, MatrixLineProcessor)} for the
+	 * given columns only. The columns are resolved once against the header,
+	 * the cells of the other columns are skipped without being decoded or
+	 * converted.
+	 * 
+	 * @param <T>
+	 * @param file
+	 * @param delimiter
+	 * @param lineProcessor
+	 * @param columns
+	 *            the header names of the wanted columns
+	 * @return
+	 * @throws IncorrectNumberOfEntriesException
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if a column is not in the header
+	 */
+	public static final <T> Map<String, List<T>> readMatrix(File file, final String delimiter,
+			MatrixLineProcessor<T> lineProcessor, Collection<String> columns)
+			throws IncorrectNumberOfEntriesException, IOException {
+		return readMatrix(file, delimiter, lineProcessor, columns, null, null);
+	}
 
-		try (BufferedReader br = new BufferedReader(new FileReader(file))){
-			// keep the header: [0] = mass , [rest] = sample names
-			final String[] header = br.readLine().split(delimiter);
-			// initialize the matrix
-			matrix = new HashMap<String, List<T>>();
+	/**
+	 * Same as {@link #readMatrix(File, String, MatrixLineProcessor, Collection)}
+	 * with the columns given by index
+	 * 
+	 * @param <T>
+	 * @param file
+	 * @param delimiter
+	 * @param lineProcessor
+	 * @param columns
+	 *            the (zero-based) indexes of the wanted columns, 0 being the
+	 *            first column after the header sample start index
+	 * @return
+	 * @throws IncorrectNumberOfEntriesException
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if a column is not in the header
+	 */
+	public static final <T> Map<String, List<T>> readMatrix(File file, final String delimiter,
+			MatrixLineProcessor<T> lineProcessor, int[] columns)
+			throws IncorrectNumberOfEntriesException, IOException {
+		return readMatrix(file, delimiter, lineProcessor, null, columns, null);
+	}
 
-			// get sample names from header
-			for (int i = lineProcessor.getHeaderSampleStartIndex(); i < header.length; i++) {
-				matrix.put(header[i], new LinkedList<T>());
+	/**
+	 * Same as {@link #readMatrix(File, String, MatrixLineProcessor)} for the
+	 * rows accepted by the filter. The filter is applied to the row label
+	 * field, the other fields of rejected rows are neither split nor checked
+	 * 
+	 * @param <T>
+	 * @param file
+	 * @param delimiter
+	 * @param lineProcessor
+	 * @param filter
+	 *            see {@link org.omixer.utils.readers.impl.RowFilters}
+	 * @return
+	 * @throws IncorrectNumberOfEntriesException
+	 * @throws IOException
+	 */
+	public static final <T> Map<String, List<T>> readMatrix(File file, final String delimiter,
+			MatrixLineProcessor<T> lineProcessor, RowFilter filter)
+			throws IncorrectNumberOfEntriesException, IOException {
+		return readMatrix(file, delimiter, lineProcessor, null, null, filter);
+	}
+
+	/**
+	 * Same as {@link #readMatrix(File, String, MatrixLineProcessor, Collection)}
+	 * for the rows accepted by the filter
+	 * 
+	 * @param <T>
+	 * @param file
+	 * @param delimiter
+	 * @param lineProcessor
+	 * @param columns
+	 *            the header names of the wanted columns
+	 * @param filter
+	 *            applied to the row label field
+	 * @return
+	 * @throws IncorrectNumberOfEntriesException
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if a column is not in the header
+	 */
+	public static final <T> Map<String, List<T>> readMatrix(File file, final String delimiter,
+			MatrixLineProcessor<T> lineProcessor, Collection<String> columns, RowFilter filter)
+			throws IncorrectNumberOfEntriesException, IOException {
+		return readMatrix(file, delimiter, lineProcessor, columns, null, filter);
+	}
+
+	/**
+	 * Reads the columns given either by name, by index or all of them when
+	 * both are <code>null</code>, and the rows accepted by the filter if any
+	 */
+	private static <T> Map<String, List<T>> readMatrix(File file, final String delimiter,
+			MatrixLineProcessor<T> lineProcessor, Collection<String> columnLabels, int[] columnIndexes,
+			RowFilter filter) throws IncorrectNumberOfEntriesException, IOException {
+
+		final Map<String, List<T>> matrix = new HashMap<String, List<T>>();
+
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "readMatrix", file);
+				DelimitedTokenizer tokenizer = probe.track(DelimitedTokenizer.open(file, delimiter))) {
+			// an empty file is an empty matrix
+			if (!tokenizer.nextLine()) {
+				return matrix;
 			}
+			final String[] header = tokenizer.getStrings(false);
+			final int startIndex = lineProcessor.getHeaderSampleStartIndex();
+			final int[] fields = projectColumns(header, startIndex, columnLabels, columnIndexes);
 
-			// start at two cos header is at 1
-			int lineNum = 2;
-			while (br.ready()) {
-				// map the line to a list of T
-				List<T> entries = lineProcessor.process(br.readLine(),
-						delimiter);
-				// the number of entries that were mapped
-				int entriesSize = entries.size();
+			// resolve the column of each wanted field once
+			final List<List<T>> projected = new ArrayList<List<T>>(fields.length);
+			for (int field : fields) {
+				List<T> column = matrix.get(header[field]);
+				if (column == null) {
+					column = new LinkedList<T>();
+					matrix.put(header[field], column);
+				}
+				projected.add(column);
+			}
 
-				// ensure correct number of lines
-				if (entriesSize + lineProcessor.getHeaderSampleStartIndex() != header.length) {
+			final boolean allColumns = columnLabels == null && columnIndexes == null;
+			long rows = 0;
+			while (tokenizer.nextLine()) {
+				if (filter != null && !filter.accept(tokenizer, 0)) {
+					continue;
+				}
+				List<T> entries = null;
+				final int entriesSize;
+				if (allColumns) {
+					entries = lineProcessor.process(tokenizer);
+					entriesSize = entries.size();
+				} else {
+					// scans the delimiters of the line without decoding the cells
+					entriesSize = tokenizer.getTrimmedFieldCount() - startIndex;
+				}
+				if (entriesSize + startIndex != header.length) {
 					throw new IncorrectNumberOfEntriesException("Line "
-							+ lineNum + " have " + entriesSize
+							+ tokenizer.getLineNumber() + " have " + entriesSize
 							+ " entries instead of " + header.length);
 				}
-				// increment line number
-				lineNum++;
-				// populate matrix
-				for (int i = 0; i < entriesSize; i++) {
-					// sync the fetch from header by getting : i +
-					// lineProcessor.getHeaderSampleStartIndex()
-					matrix.get(
-							header[i
-									+ lineProcessor.getHeaderSampleStartIndex()])
-							.add(entries.get(i));
+				if (!allColumns) {
+					entries = lineProcessor.process(tokenizer, fields);
+				}
+				int i = 0;
+				for (T entry : entries) {
+					projected.get(i++).add(entry);
 				}
+				rows++;
 			}
+			probe.cells(rows * fields.length);
 		}
 
 		return matrix;
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * @return the fields of the wanted columns in the header
+	 */
+	private static int[] projectColumns(String[] header, int startIndex, Collection<String> columnLabels,
+			int[] columnIndexes) {
+
+		// a column wanted twice is read once
+		final boolean[] wanted = new boolean[header.length];
+		int count = 0;
+
+		if (columnLabels == null && columnIndexes == null) {
+			for (int i = startIndex; i < header.length; i++) {
+				wanted[i] = true;
+				count++;
+			}
+		} else if (columnIndexes != null) {
+			for (int column : columnIndexes) {
+				if (column < 0 || startIndex + column >= header.length) {
+					throw new IllegalArgumentException("Column " + column + " is not in the "
+							+ (header.length - startIndex) + " columns of the header");
+				}
+				if (!wanted[startIndex + column]) {
+					wanted[startIndex + column] = true;
+					count++;
+				}
+			}
+		} else {
+			// as with readMatrix, a duplicated label refers to its last column
+			final Map<String, Integer> fieldIndexes = new HashMap<String, Integer>(header.length * 2);
+			for (int i = startIndex; i < header.length; i++) {
+				fieldIndexes.put(header[i], i);
+			}
+			for (String label : columnLabels) {
+				final Integer field = fieldIndexes.get(label);
+				if (field == null) {
+					throw new IllegalArgumentException("Column " + label + " is not in the header");
+				}
+				if (!wanted[field]) {
+					wanted[field] = true;
+					count++;
+				}
+			}
+		}
+
+		// in line order, so that the line is scanned once from left to right
+		final int[] fields = new int[count];
+		for (int i = startIndex, j = 0; i < header.length; i++) {
+			if (wanted[i]) {
+				fields[j++] = i;
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * 
+	 * Same as {@link #readMatrix(File, String, MatrixLineProcessor)} but the
+	 * lines are split in ranges that are processed on the common
+	 * {@link ForkJoinPool}
+	 * 
+	 * @param <T>
+	 * @param file
+	 * @param delimiter
+	 * @param lineProcessor
+	 *            a thread safe line processor
+	 * @return
+	 * @throws IncorrectNumberOfEntriesException
+	 * @throws IOException
+	 */
+	public static final <T> Map<String, List<T>> readMatrixParallel(File file,
+			final String delimiter, MatrixLineProcessor<T> lineProcessor)
+			throws IncorrectNumberOfEntriesException, IOException {
+		return readMatrixParallel(file, delimiter, lineProcessor, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * 
+	 * Same as {@link #readMatrix(File, String, MatrixLineProcessor)} but the
+	 * lines are split in ranges that are processed on the given pool and
+	 * stitched back in file order
+	 * 
+	 * @param <T>
+	 * @param file
+	 * @param delimiter
+	 * @param lineProcessor
+	 *            a thread safe line processor
+	 * @param pool
+	 * @return
+	 * @throws IncorrectNumberOfEntriesException
+	 *             for the first line, in file order, with a wrong number of
+	 *             entries
+	 * @throws IOException
+	 */
+	public static final <T> Map<String, List<T>> readMatrixParallel(File file,
+			final String delimiter, MatrixLineProcessor<T> lineProcessor, ForkJoinPool pool)
+			throws IncorrectNumberOfEntriesException, IOException {
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "readMatrixParallel", file)) {
+			final Map<String, List<T>> matrix = ParallelMatrixReader.readMatrix(file, delimiter, lineProcessor, pool);
+			probe.read(file);
+			for (List<T> column : matrix.values()) {
+				probe.cells(column.size());
+			}
+			return matrix;
+		}
+	}
+
+	/**
+	 * 
+	 * Reads a matrix of doubles column by column. The first column holds the
+	 * row labels and the header holds the column labels. Empty cells are read
+	 * as {@link Double#NaN}
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @return
+	 * @throws IncorrectNumberOfEntriesException
+	 *             if a line does not have as many entries as the header
+	 * @throws IOException
+	 */
+	public static final DoubleMatrix readDoubleMatrix(File file, final String delimiter)
+			throws IncorrectNumberOfEntriesException, IOException {
+		return readDoubleMatrix(file, delimiter, DoubleParser.EMPTY_AS_NAN);
+	}
+
+	/**
+	 * Same as {@link #readDoubleMatrix(File, String)} with cells parsed by the
+	 * given parser, e.g. to read <code>NA</code> cells as missing values
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @param parser
+	 * @return
+	 * @throws IncorrectNumberOfEntriesException
+	 *             if a line does not have as many entries as the header
+	 * @throws IOException
+	 */
+	public static final DoubleMatrix readDoubleMatrix(File file, final String delimiter, DoubleParser parser)
+			throws IncorrectNumberOfEntriesException, IOException {
+
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "readDoubleMatrix", file);
+				DelimitedTokenizer tokenizer = probe.track(DelimitedTokenizer.open(file, delimiter))) {
+
+			if (!tokenizer.nextLine()) {
+				return new DoubleMatrix(new String[0], new String[0], new double[0][]);
+			}
+			// [0] = row labels header, [rest] = column labels
+			final String[] header = tokenizer.getStrings(false);
+			final String[] columnLabels = Arrays.copyOfRange(header, 1, header.length);
+
+			int rowCount = 0;
+			String[] rowLabels = new String[INITIAL_MATRIX_ROWS];
+			double[][] columns = new double[columnLabels.length][INITIAL_MATRIX_ROWS];
+
+			while (tokenizer.nextLine()) {
+
+				final int entriesSize = tokenizer.getTrimmedFieldCount() - 1;
+				if (entriesSize + 1 != header.length) {
+					throw new IncorrectNumberOfEntriesException("Line " + tokenizer.getLineNumber() + " have "
+							+ entriesSize + " entries instead of " + header.length);
+				}
+				// grow all columns at once
+				if (rowCount == rowLabels.length) {
+					final int capacity = rowCount * 2;
+					rowLabels = Arrays.copyOf(rowLabels, capacity);
+					for (int i = 0; i < columns.length; i++) {
+						columns[i] = Arrays.copyOf(columns[i], capacity);
+					}
+				}
+
+				rowLabels[rowCount] = tokenizer.getString(0);
+				for (int i = 0; i < entriesSize; i++) {
+					columns[i][rowCount] = tokenizer.getDouble(i + 1, parser);
+				}
+				rowCount++;
+			}
+
+			probe.cells((long) rowCount * columns.length);
+
+			// trim to the number of rows read
+			rowLabels = Arrays.copyOf(rowLabels, rowCount);
+			for (int i = 0; i < columns.length; i++) {
+				columns[i] = Arrays.copyOf(columns[i], rowCount);
+			}
+
+			return new DoubleMatrix(rowLabels, columnLabels, columns);
+		}
+	}
+
+	/**
+	 * Reads a matrix of doubles keeping only its non zero cells. Empty cells
+	 * are read as {@link Double#NaN}, which is not zero.
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @return
+	 * @throws IncorrectNumberOfEntriesException
+	 *             if a line does not have as many entries as the header
+	 * @throws IOException
+	 */
+	public static final SparseDoubleMatrix readSparseMatrix(File file, final String delimiter)
+			throws IncorrectNumberOfEntriesException, IOException {
+		return readSparseMatrix(file, delimiter, DoubleParser.EMPTY_AS_NAN, 0d);
+	}
+
+	/**
+	 * Same as {@link #readSparseMatrix(File, String)} with cells parsed by the
+	 * given parser, e.g. <code>new DoubleParser(0, "", "NA")</code> to drop
+	 * empty and <code>NA</code> cells, and small values dropped as well
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @param parser
+	 * @param zeroTolerance
+	 *            values whose absolute value is at most this tolerance are
+	 *            zero
+	 * @return
+	 * @throws IncorrectNumberOfEntriesException
+	 *             if a line does not have as many entries as the header
+	 * @throws IOException
+	 */
+	public static final SparseDoubleMatrix readSparseMatrix(File file, final String delimiter, DoubleParser parser,
+			double zeroTolerance) throws IncorrectNumberOfEntriesException, IOException {
+
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "readSparseMatrix", file);
+				DelimitedTokenizer tokenizer = probe.track(DelimitedTokenizer.open(file, delimiter))) {
+
+			if (!tokenizer.nextLine()) {
+				return new SparseDoubleMatrix.Builder(new String[0]).build();
+			}
+			// [0] = row labels header, [rest] = column labels
+			final String[] header = tokenizer.getStrings(false);
+			final SparseDoubleMatrix.Builder matrix = new SparseDoubleMatrix.Builder(
+					Arrays.copyOfRange(header, 1, header.length), zeroTolerance);
+
+			while (tokenizer.nextLine()) {
+				final int entriesSize = tokenizer.getTrimmedFieldCount() - 1;
+				if (entriesSize + 1 != header.length) {
+					throw new IncorrectNumberOfEntriesException("Line " + tokenizer.getLineNumber() + " have "
+							+ entriesSize + " entries instead of " + header.length);
+				}
+				matrix.addRow(tokenizer.getString(0));
+				for (int i = 0; i < entriesSize; i++) {
+					matrix.put(i, tokenizer.getDouble(i + 1, parser));
+				}
+			}
+			probe.cells((tokenizer.getLineNumber() - 1) * (header.length - 1));
+
+			return matrix.build();
+		}
+	}
+
+	/**
+	 * Pushes each row of a matrix to a visitor through a reused cursor,
+	 * without allocating per row or per cell. Empty cells are read as
+	 * {@link Double#NaN}. Rows are not checked against the header, the
+	 * visitor can compare {@link RowCursor#getColumnCount()} to it.
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @param visitor
+	 * @return the number of rows visited
+	 * @throws IOException
+	 */
+	public static final long visitMatrix(File file, final String delimiter, RowVisitor visitor)
+			throws IOException {
+		return visitMatrix(file, delimiter, DoubleParser.EMPTY_AS_NAN, visitor);
+	}
+
+	/**
+	 * Same as {@link #visitMatrix(File, String, RowVisitor)} with the cells
+	 * parsed by the given parser
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @param parser
+	 * @param visitor
+	 * @return the number of rows visited
+	 * @throws IOException
+	 */
+	public static final long visitMatrix(File file, final String delimiter, DoubleParser parser,
+			RowVisitor visitor) throws IOException {
+
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "visitMatrix", file);
+				DelimitedTokenizer tokenizer = probe.track(DelimitedTokenizer.open(file, delimiter))) {
+			if (!tokenizer.nextLine()) {
+				return 0;
+			}
+			final String[] header = tokenizer.getStrings(false);
+			visitor.start(Arrays.copyOfRange(header, 1, header.length));
+			return RowCursor.visit(tokenizer, parser, visitor);
+		}
+	}
+
+	/**
+	 * Same as {@link #readDoubleMatrix(File, String)} but the values are
+	 * stored off heap, in a scratch file of the temporary directory mapped in
+	 * memory. The file is read twice: once for the shape and row labels, once
+	 * for the values.
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @return a matrix to close once done
+	 * @throws IncorrectNumberOfEntriesException
+	 *             if a line does not have as many entries as the header
+	 * @throws IOException
+	 */
+	public static final OffHeapDoubleMatrix readDoubleMatrixOffHeap(File file, final String delimiter)
+			throws IncorrectNumberOfEntriesException, IOException {
+
+		// both passes are reported as one operation
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "readDoubleMatrixOffHeap", file)) {
+
+			final String[] header;
+			final List<String> rowLabels = new ArrayList<String>(INITIAL_MATRIX_ROWS);
+			try (DelimitedTokenizer tokenizer = probe.track(DelimitedTokenizer.open(file, delimiter))) {
+				header = tokenizer.nextLine() ? tokenizer.getStrings(false) : new String[] { null };
+				while (tokenizer.nextLine()) {
+					rowLabels.add(tokenizer.getString(0));
+				}
+			}
+
+			final OffHeapDoubleMatrix matrix = OffHeapDoubleMatrix.allocate(
+					rowLabels.toArray(new String[rowLabels.size()]), Arrays.copyOfRange(header, 1, header.length),
+					new File(getIOTmpDir()));
+
+			try (DelimitedTokenizer tokenizer = probe.track(DelimitedTokenizer.open(file, delimiter))) {
+				tokenizer.skipLines(1);
+				for (int row = 0; tokenizer.nextLine(); row++) {
+					final int entriesSize = tokenizer.getTrimmedFieldCount() - 1;
+					if (entriesSize + 1 != header.length) {
+						throw new IncorrectNumberOfEntriesException("Line " + tokenizer.getLineNumber() + " have "
+								+ entriesSize + " entries instead of " + header.length);
+					}
+					for (int i = 0; i < entriesSize; i++) {
+						matrix.set(row, i, tokenizer.getDouble(i + 1, DoubleParser.EMPTY_AS_NAN));
+					}
+				}
+			} catch (IncorrectNumberOfEntriesException | IOException | RuntimeException e) {
+				matrix.close();
+				throw e;
+			}
+
+			probe.cells((long) matrix.getRowCount() * matrix.getColumnCount());
+			return matrix;
+		}
+	}
+
+	/**
+	 * Same as {@link #readDoubleMatrix(File, String)} but the first load
+	 * writes a binary columnar sidecar next to the file, with an additional
+	 * <code>.omxm</code> extension, and the following loads map
+	 * the sidecar instead of parsing the text. A sidecar that does not match
+	 * the size, modification time or checksum of the file is rebuilt.
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @return
+	 * @throws IncorrectNumberOfEntriesException
+	 *             if a line does not have as many entries as the header
+	 * @throws IOException
+	 */
+	public static final DoubleMatrix readDoubleMatrixCached(File file, final String delimiter)
+			throws IncorrectNumberOfEntriesException, IOException {
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "readDoubleMatrixCached", file)) {
+			final DoubleMatrix matrix = MatrixSidecar.readDoubleMatrix(file, delimiter);
+			probe.cells((long) matrix.getRowCount() * matrix.getColumnCount());
+			return matrix;
+		}
+	}
+
 	public static final <T> List<T> readCSV(File file, final String delimiter,
 			int skip)
 			throws IOException {
+		return readCSV(file, delimiter, skip, 0, null);
+	}
 
-		return readCSV(file, skip, (Function<String, T>) new Function<String, String[]>() {
-			public String[] apply(String input) {
-				// in case delimiter is null a null pointer exception is
-				// thrown
-				return input.split(delimiter);
+	/**
+	 * Same as {@link #readCSV(File, String, int)} for the rows whose key field
+	 * is accepted by the filter. Rejected rows are split up to their key field
+	 * only
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @param skip
+	 * @param keyField
+	 *            the (zero-based) index of the field tested by the filter
+	 * @param filter
+	 *            see {@link org.omixer.utils.readers.impl.RowFilters},
+	 *            <code>null</code> to read all rows
+	 * @return
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	public static final <T> List<T> readCSV(File file, final String delimiter,
+			int skip, int keyField, RowFilter filter)
+			throws IOException {
+
+		// init the list
+		final List<T> mappedRows = new LinkedList<T>();
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "readCSV", file);
+				DelimitedTokenizer tokenizer = probe.track(DelimitedTokenizer.open(file, delimiter))) {
+
+			tokenizer.skipLines(skip);
+			// split each row without decoding the line first
+			while (tokenizer.nextLine()) {
+				if (filter != null && !filter.accept(tokenizer, keyField)) {
+					continue;
+				}
+				mappedRows.add((T) tokenizer.getStrings(false));
 			}
-		});
+		}
+		return mappedRows;
 	}
 	
 	public static final <T> List<T> readCSV(File file,
@@ -280,17 +948,63 @@ public final class FileUtils {
 
 		// init the list
 		final List<T> mappedRows = new LinkedList<T>();		
-		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+		// no delimiter is needed, the row mapper gets the whole line
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "readCSV", file);
+				DelimitedTokenizer tokenizer = probe.track(DelimitedTokenizer.open(file, null))) {
 
-			skip(br, skip);
+			tokenizer.skipLines(skip);
 			// process each row
-			while (br.ready()) {
-				mappedRows.add(rowMapper.apply(br.readLine()));
+			while (tokenizer.nextLine()) {
+				mappedRows.add(rowMapper.apply(tokenizer.getLine()));
 			}
 		}
 		return mappedRows;
 	}
 	
+	/**
+	 * Lazy counterpart of {@link #readCSV(File, String, int)}: rows are split
+	 * as the stream is consumed and a parallel stream splits the file in byte
+	 * ranges. The stream must be closed to release the file if it is not fully
+	 * consumed
+	 * 
+	 * @param file
+	 * @param delimiter
+	 * @param skip
+	 * @return
+	 * @throws IOException
+	 */
+	public static final Stream<String[]> streamCSV(File file, final String delimiter, int skip)
+			throws IOException {
+
+		return LineSpliterator.stream(file, delimiter, skip, new Function<DelimitedTokenizer, String[]>() {
+			public String[] apply(DelimitedTokenizer tokenizer) {
+				return tokenizer.getStrings(false);
+			}
+		}, LineSpliterator.MIN_SPLIT_SIZE);
+	}
+
+	/**
+	 * Lazy counterpart of {@link #readCSV(File, int, Function)}: rows are
+	 * mapped as the stream is consumed and a parallel stream splits the file
+	 * in byte ranges. The stream must be closed to release the file if it is
+	 * not fully consumed
+	 * 
+	 * @param file
+	 * @param skip
+	 * @param rowMapper
+	 * @return
+	 * @throws IOException
+	 */
+	public static final <T> Stream<T> streamCSV(File file, int skip, final Function<String, T> rowMapper)
+			throws IOException {
+
+		return LineSpliterator.stream(file, null, skip, new Function<DelimitedTokenizer, T>() {
+			public T apply(DelimitedTokenizer tokenizer) {
+				return rowMapper.apply(tokenizer.getLine());
+			}
+		}, LineSpliterator.MIN_SPLIT_SIZE);
+	}
+
 	/**
 	 * 
 	 * Given a tab delimited file map each of its rows to an object
@@ -299,39 +1013,22 @@ public final class FileUtils {
 	 * @throws IOException 
 	 * @Deprecated Use the simplified versions instead: with either a delimiter or a rowmapper
 	 */
-	@SuppressWarnings("unchecked")
 	public static final <T> List<T> readCSV(File file, final String delimiter,
 			int skip, Function<String, T> rowMapper)
 			throws IOException {
 
-		// init the list
-		final List<T> mappedRows = new LinkedList<T>();
-
-		Function<String, T> rowMapperIntern = rowMapper; 
-		
-		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-			FileUtils.skip(br, skip);
-			// if the provided rowMapper is null, create a default which return
-			// a String[]
-			if (rowMapperIntern == null) {
-				rowMapperIntern = (Function<String, T>) new Function<String, String[]>() {
-					public String[] apply(String input) {
-						// in case delimiter is null a null pointer exception is
-						// thrown
-						return input.split(delimiter);
-					}
-				};
-			}
-			// process each row
-			while (br.ready()) {
-				mappedRows.add(rowMapperIntern.apply(br.readLine()));
-			}
-		} 
+		// if the provided rowMapper is null, split the rows into a String[]
+		if (rowMapper == null) {
+			return readCSV(file, delimiter, skip);
+		}
 
-		return mappedRows;
+		return readCSV(file, skip, rowMapper);
 	}
 	
 	/**
+	 * Reads a file in a single pass and drops its line separators, as if its
+	 * lines were concatenated. Use {@link #readContent(File, Charset)} to keep
+	 * them.
 	 * 
 	 * @param file
 	 * @return a String representation of the content of a file 
@@ -339,13 +1036,51 @@ public final class FileUtils {
 	 */
 	public static final String readContentAsString(File file) throws IOException {
 
-		try(BufferedReader br = new BufferedReader(new FileReader(file))) {
-			String content = Constants.EMPTY_STRING;
-			while (br.ready()) {
-				content += br.readLine();
-			}
+		final String content = readContent(file, Charset.defaultCharset());
+		if (content.indexOf('\n') < 0 && content.indexOf('\r') < 0) {
 			return content;
 		}
+
+		// every \r and \n is part of a line separator
+		final StringBuilder lines = new StringBuilder(content.length());
+		for (int i = 0; i < content.length(); i++) {
+			final char c = content.charAt(i);
+			if (c != '\n' && c != '\r') {
+				lines.append(c);
+			}
+		}
+		return lines.toString();
+	}
+
+	/**
+	 * Reads a file in a single bulk read sized from the file size
+	 * 
+	 * @param file
+	 * @param charset
+	 * @return the content of a file, line separators included
+	 * @throws IOException
+	 */
+	public static final String readContent(File file, Charset charset) throws IOException {
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "readContent", file)) {
+			final byte[] bytes = Files.readAllBytes(file.toPath());
+			probe.read(bytes.length);
+			return new String(bytes, charset);
+		}
+	}
+
+	/**
+	 * Maps a file as a {@link CharSequence} decoded on access, for instance to
+	 * run a {@link java.util.regex.Pattern} over a file too large to be
+	 * copied on the heap
+	 * 
+	 * @param file
+	 * @param charset
+	 *            UTF-8, ISO-8859-1 or US-ASCII
+	 * @return the content of a file, line separators included
+	 * @throws IOException
+	 */
+	public static final CharSequence mapContent(File file, Charset charset) throws IOException {
+		return new MappedCharSequence(file, charset);
 	}
 	
 	/**
@@ -359,10 +1094,12 @@ public final class FileUtils {
 			throws IOException {
 
 		String header = null;
-		try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+		try (IOProbe probe = IOMetrics.start(Kind.READ, "getFileHeader", new File(fileName));
+				BufferedReader br = new BufferedReader(new FileReader(fileName))) {
 			// if exception is thrown then the file is not correct and should
 			// not be passed to this function
 			header = br.readLine();
+			probe.lines(1);
 		}
 
 		return header;
@@ -379,25 +1116,24 @@ public final class FileUtils {
 	 */
 	public static final <K, V> void writeKeyValues(Map<K, Iterable<V>> input,
 			String outfile, final String delimiter) throws IOException {
+		writeObjects(outfile, null, input.entrySet(), FileUtils.<K, V> keyValuesFormater(delimiter));
+	}
 
-		// the platform's line separator
-		final String lineSeparator = System.getProperty("line.separator");
-
-		writeObjects(outfile, null, input.entrySet(),
-				new Function<Entry<K, Iterable<V>>, String>() {
-					public String apply(Entry<K, Iterable<V>> entry) {
-						StringBuilder s = new StringBuilder();
-
-						for (V value : entry.getValue()) {
-							s.append(entry.getKey()).append(delimiter)
-									.append(value).append(lineSeparator);
-						}
-						// replace the trailing characters by an empty space 
-						return s.toString().replaceFirst(lineSeparator + "$",
-								Constants.EMPTY_STRING);
-					}
-				});
-
+	/**
+	 * Same as {@link #writeKeyValues(Map, String, String)} with the entries
+	 * formatted concurrently by the executor
+	 * 
+	 * @param input
+	 * @param outfile
+	 * @param delimiter
+	 * @param executor
+	 *            formats the entries, it is not shut down
+	 * @throws IOException
+	 */
+	public static final <K, V> void writeKeyValues(Map<K, Iterable<V>> input,
+			String outfile, final String delimiter, ExecutorService executor) throws IOException {
+		writeObjects(new File(outfile), null, input.entrySet(), FileUtils.<K, V> keyValuesFormater(delimiter),
+				executor);
 	}
 
 	/**
@@ -407,6 +1143,9 @@ public final class FileUtils {
 	 * 
 	 * New lines are handled by this method
 	 * 
+	 * Concurrent writes to the same file are serialized, writes to different
+	 * files run in parallel
+	 * 
 	 * @param file
 	 * @param header
 	 * 			a header {@link String} or <code>null</code>. An empty
@@ -417,36 +1156,60 @@ public final class FileUtils {
 	 *            without a new line character
 	 * @throws IOException
 	 */
-	public static final synchronized <O> void writeObjects(File file,
+	public static final <O> void writeObjects(File file,
 			String header, Iterable<O> objects, Function<O, String> formater)
 			throws IOException {
 		// the platform's line separator
 		final String lineSeparator = System.getProperty("line.separator");
-		// initialize the format function with the one given in params
-		Function<O, String> format = formater;
-		// if nothing is given make sure to provide a default
-		if (formater == null) {
-			// assign a plain toString format
-			format = new Function<O, String>() {
-				public String apply(O input) {
-					return input.toString();
-				}
-			};
-		}
+		final Function<O, String> format = orToString(formater);
 
-		try (FileWriter fileWriter = new FileWriter(file);) {			
-			
-			// is there a header to print?
-			if (header != null) {
-				fileWriter.write(header);
-				fileWriter.write(lineSeparator);
-			}
-			// feature formatter provided then use it to format each object
-			for (O o : objects) {
-				fileWriter.write(format.apply(o));
-				fileWriter.write(lineSeparator);
+		// writers of the same file are serialized, other files are written concurrently
+		final Path path = PathLocks.lock(file);
+		try (IOProbe probe = IOMetrics.start(Kind.WRITE, "writeObjects", file)) {
+			long lines = 0;
+			try (Writer fileWriter = new ChannelWriter(path, Charset.defaultCharset())) {
+
+				// is there a header to print?
+				if (header != null) {
+					fileWriter.write(header);
+					fileWriter.write(lineSeparator);
+					lines++;
+				}
+				// feature formatter provided then use it to format each object
+				for (O o : objects) {
+					fileWriter.write(format.apply(o));
+					fileWriter.write(lineSeparator);
+					lines++;
+				}
 			}
+			probe.lines(lines);
+			probe.written(file);
+		} finally {
+			PathLocks.unlock(path);
+		}
+	}
 
+	/**
+	 * Same as {@link #writeObjects(File, String, Iterable, Function)} but
+	 * batches of objects are formatted concurrently by the executor while the
+	 * calling thread writes them in order. The output is the same.
+	 * 
+	 * @param file
+	 * @param header
+	 *            a header {@link String} or <code>null</code>
+	 * @param objects
+	 * @param formater
+	 *            a thread safe formater or <code>null</code> for toString
+	 * @param executor
+	 *            formats the objects, it is not shut down
+	 * @throws IOException
+	 */
+	public static final <O> void writeObjects(File file, String header, Iterable<O> objects,
+			Function<O, String> formater, ExecutorService executor) throws IOException {
+		try (IOProbe probe = IOMetrics.start(Kind.WRITE, "writeObjects", file)) {
+			ParallelWriter.writeObjects(file, header, objects, orToString(formater), executor,
+					ParallelWriter.BATCH_SIZE);
+			probe.written(file);
 		}
 	}
 	
@@ -471,7 +1234,7 @@ public final class FileUtils {
 	 *            without a new line character
 	 * @throws IOException
 	 */
-	public static final synchronized <O> void writeObjects(String file,
+	public static final <O> void writeObjects(String file,
 			String header, Iterable<O> objects, Function<O, String> formater)
 			throws IOException {
 		writeObjects(new File(file), header, objects, formater);
@@ -491,13 +1254,71 @@ public final class FileUtils {
 
 	public static <K, V> void writeKeyValue(Map<K, V> map, String header,
 			File output, final String delimiter) throws IOException {
-		writeObjects(output, header, map.entrySet(),
-				new Function<Entry<K, V>, String>() {
+		writeObjects(output, header, map.entrySet(), FileUtils.<K, V> keyValueFormater(delimiter));
+	}
 
-					public String apply(Entry<K, V> input) {
-						return input.getKey().toString() + delimiter
-								+ input.getValue().toString();
+	/**
+	 * Same as {@link #writeKeyValue(Map, String, File, String)} with the
+	 * entries formatted concurrently by the executor
+	 * 
+	 * @param map
+	 * @param header
+	 * @param output
+	 * @param delimiter
+	 * @param executor
+	 *            formats the entries, it is not shut down
+	 * @throws IOException
+	 */
+	public static <K, V> void writeKeyValue(Map<K, V> map, String header,
+			File output, final String delimiter, ExecutorService executor) throws IOException {
+		writeObjects(output, header, map.entrySet(), FileUtils.<K, V> keyValueFormater(delimiter), executor);
+	}
+
+	/**
+	 * @return the formater or a plain toString format if it is <code>null</code>
+	 */
+	private static <O> Function<O, String> orToString(Function<O, String> formater) {
+		if (formater != null) {
+			return formater;
+		}
+		return new Function<O, String>() {
+			public String apply(O input) {
+				return input.toString();
+			}
+		};
+	}
+
+	/**
+	 * One key delimiter value line per value, without a trailing line separator
+	 */
+	private static <K, V> Function<Entry<K, Iterable<V>>, String> keyValuesFormater(final String delimiter) {
+
+		// the platform's line separator
+		final String lineSeparator = System.getProperty("line.separator");
+
+		return new Function<Entry<K, Iterable<V>>, String>() {
+			public String apply(Entry<K, Iterable<V>> entry) {
+				StringBuilder s = new StringBuilder();
+
+				boolean first = true;
+				for (V value : entry.getValue()) {
+					// separate from the previous line
+					if (!first) {
+						s.append(lineSeparator);
 					}
-				});		
+					first = false;
+					s.append(entry.getKey()).append(delimiter).append(value);
+				}
+				return s.toString();
+			}
+		};
+	}
+
+	private static <K, V> Function<Entry<K, V>, String> keyValueFormater(final String delimiter) {
+		return new Function<Entry<K, V>, String>() {
+			public String apply(Entry<K, V> input) {
+				return input.getKey().toString() + delimiter + input.getValue().toString();
+			}
+		};
 	}
 }
@@ -0,0 +1,138 @@
+package org.omixer.utils.utils;
+
+import java.io.File;
+
+/**
+ *
+ * The counters and timings of one completed I/O operation. Counters that an
+ * operation does not measure are 0.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+public final class IOEvent {
+
+	/**
+	 * The direction of the data of an operation
+	 */
+	public enum Kind {
+		READ, WRITE, COPY, COMPRESS, DECOMPRESS
+	}
+
+	private final Kind kind;
+	private final String operation;
+	private final File file;
+	private final long bytesRead;
+	private final long bytesWritten;
+	private final long lines;
+	private final long cells;
+	private final long elapsedNanos;
+	private final long waitNanos;
+
+	IOEvent(Kind kind, String operation, File file, long bytesRead, long bytesWritten, long lines, long cells,
+			long elapsedNanos, long waitNanos) {
+		this.kind = kind;
+		this.operation = operation;
+		this.file = file;
+		this.bytesRead = bytesRead;
+		this.bytesWritten = bytesWritten;
+		this.lines = lines;
+		this.cells = cells;
+		this.elapsedNanos = elapsedNanos;
+		this.waitNanos = waitNanos;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return the name of the method, e.g. <code>readDoubleMatrix</code>
+	 */
+	public String getOperation() {
+		return operation;
+	}
+
+	/**
+	 * @return the file read, or written by a write operation
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the bytes read, decompressed bytes for compressed text files
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * @return the lines read, or the objects written, header included
+	 */
+	public long getLines() {
+		return lines;
+	}
+
+	/**
+	 * @return the matrix cells parsed
+	 */
+	public long getCells() {
+		return cells;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @return the part of the elapsed time spent waiting for bytes: mapping
+	 *         windows of a file, or reading and inflating a compressed file
+	 */
+	public long getWaitNanos() {
+		return waitNanos;
+	}
+
+	/**
+	 * @return the elapsed time that is not spent waiting for bytes, mostly
+	 *         parsing
+	 */
+	public long getParseNanos() {
+		return elapsedNanos - waitNanos;
+	}
+
+	/**
+	 * @return the uncompressed size over the compressed size, {@link Double#NaN}
+	 *         for operations that neither compress nor decompress
+	 */
+	public double getCompressionRatio() {
+		if (kind == Kind.COMPRESS) {
+			return (double) bytesRead / bytesWritten;
+		}
+		if (kind == Kind.DECOMPRESS) {
+			return (double) bytesWritten / bytesRead;
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * @return the bytes read and written per second
+	 */
+	public double getThroughput() {
+		return (bytesRead + bytesWritten) * 1e9 / Math.max(1, elapsedNanos);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return operation + "(" + file + "): " + bytesRead + " bytes read, " + bytesWritten + " bytes written, "
+				+ lines + " lines, " + cells + " cells in " + elapsedNanos / 1000000 + " ms, "
+				+ waitNanos / 1000000 + " ms waiting";
+	}
+}
@@ -0,0 +1,49 @@
+package org.omixer.utils.utils;
+
+/**
+ *
+ * Commits an {@link IOEvent} as a custom Flight Recorder event. The
+ * implementation extends <code>jdk.jfr.Event</code>, hence it is compiled in
+ * the <code>jfr</code> source set and loaded only on runtimes shipping
+ * <code>jdk.jfr</code>, that is 8u262 and later.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+abstract class IOFlightRecorder {
+
+	/**
+	 * The recorder of this runtime or <code>null</code> if it has no Flight
+	 * Recorder
+	 */
+	static final IOFlightRecorder INSTANCE = load();
+
+	private static final String IMPLEMENTATION = "org.omixer.utils.utils.JfrIOFlightRecorder";
+
+	/**
+	 * Starts timing an operation
+	 *
+	 * @return the event to commit or <code>null</code> if no recording
+	 *         enables it
+	 */
+	abstract Object begin();
+
+	/**
+	 * Ends and commits the event with the counters of the operation
+	 *
+	 * @param flightEvent
+	 *            returned by {@link #begin()}
+	 * @param event
+	 */
+	abstract void commit(Object flightEvent, IOEvent event);
+
+	private static IOFlightRecorder load() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return (IOFlightRecorder) Class.forName(IMPLEMENTATION).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			// no Flight Recorder, or built without the jfr source set
+			return null;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package org.omixer.utils.utils;
+
+/**
+ *
+ * Receives an {@link IOEvent} once an operation of {@link FileUtils} or
+ * {@link CompressUtils} completes, see {@link IOMetrics#setListener(IOListener)}.
+ * 
+ * Listeners are called on the thread that ran the operation, possibly
+ * concurrently, and should return quickly. A listener can aggregate the events
+ * in counters and timers or forward them to a metrics system, Flight Recorder
+ * events are committed without a listener.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+public interface IOListener {
+
+	/**
+	 * @param event
+	 */
+	void completed(IOEvent event);
+}
@@ -0,0 +1,57 @@
+package org.omixer.utils.utils;
+
+import java.io.File;
+
+import org.omixer.utils.utils.IOEvent.Kind;
+
+/**
+ *
+ * Opt-in instrumentation of {@link FileUtils} and {@link CompressUtils}: once a
+ * listener is set, each read, write and (de)compression reports an
+ * {@link IOEvent}. On runtimes shipping <code>jdk.jfr</code>, operations are
+ * also committed as <code>org.omixer.utils.IO</code> Flight Recorder events
+ * while a recording enables them. Otherwise the operations are not measured
+ * at all.
+ * 
+ * Lazy streams and mapped views are not reported since their I/O happens
+ * after the call returns.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+public final class IOMetrics {
+
+	private static volatile IOListener listener;
+
+	private IOMetrics() {
+	}
+
+	/**
+	 * @param listener
+	 *            the listener of all operations, <code>null</code> to disable
+	 *            the instrumentation
+	 */
+	public static void setListener(IOListener listener) {
+		IOMetrics.listener = listener;
+	}
+
+	/**
+	 * @return the current listener or <code>null</code>
+	 */
+	public static IOListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * @return a probe recording the operation, or a probe doing nothing when
+	 *         there is neither a listener nor a Flight Recorder recording
+	 */
+	static IOProbe start(Kind kind, String operation, File file) {
+		final IOListener current = listener;
+		final Object flightEvent = IOFlightRecorder.INSTANCE == null ? null : IOFlightRecorder.INSTANCE.begin();
+		if (current == null && flightEvent == null) {
+			return IOProbe.DISABLED;
+		}
+		return new IOProbe.Recording(current, flightEvent, kind, operation, file);
+	}
+}
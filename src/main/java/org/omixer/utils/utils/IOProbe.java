@@ -0,0 +1,178 @@
+package org.omixer.utils.utils;
+
+import java.io.File;
+import java.util.Collection;
+
+import org.omixer.utils.readers.DelimitedTokenizer;
+import org.omixer.utils.utils.IOEvent.Kind;
+
+/**
+ *
+ * Collects the counters of an operation and reports them on close. The
+ * {@link #DISABLED} probe ignores everything, so that instrumented code does
+ * not branch on whether metrics are enabled.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+class IOProbe implements AutoCloseable {
+
+	static final IOProbe DISABLED = new IOProbe();
+
+	private IOProbe() {
+	}
+
+	/**
+	 * Counts the bytes, lines and wait time of the tokenizer when the probe is
+	 * closed, or when the next tokenizer is tracked
+	 *
+	 * @param tokenizer
+	 * @return the tokenizer
+	 */
+	DelimitedTokenizer track(DelimitedTokenizer tokenizer) {
+		return tokenizer;
+	}
+
+	void read(long bytes) {
+	}
+
+	/**
+	 * Counts the size of the file, or of the files of a directory, as read
+	 */
+	void read(File file) {
+	}
+
+	void written(long bytes) {
+	}
+
+	/**
+	 * Counts the size of the file as written
+	 */
+	void written(File file) {
+	}
+
+	void written(Collection<File> files) {
+	}
+
+	void lines(long lines) {
+	}
+
+	void cells(long cells) {
+	}
+
+	/**
+	 * Reports the operation
+	 */
+	public void close() {
+	}
+
+	static final class Recording extends IOProbe {
+
+		// either may be null, not both
+		private final IOListener listener;
+		private final Object flightEvent;
+		private final Kind kind;
+		private final String operation;
+		private final File file;
+		private final long start = System.nanoTime();
+
+		private DelimitedTokenizer tokenizer;
+		private long bytesRead;
+		private long bytesWritten;
+		private long lines;
+		private long cells;
+		private long waitNanos;
+
+		Recording(IOListener listener, Object flightEvent, Kind kind, String operation, File file) {
+			this.listener = listener;
+			this.flightEvent = flightEvent;
+			this.kind = kind;
+			this.operation = operation;
+			this.file = file;
+		}
+
+		@Override
+		DelimitedTokenizer track(DelimitedTokenizer tokenizer) {
+			count();
+			this.tokenizer = tokenizer;
+			return tokenizer;
+		}
+
+		@Override
+		void read(long bytes) {
+			bytesRead += bytes;
+		}
+
+		@Override
+		void read(File file) {
+			bytesRead += sizeOf(file);
+		}
+
+		@Override
+		void written(long bytes) {
+			bytesWritten += bytes;
+		}
+
+		@Override
+		void written(File file) {
+			bytesWritten += file.length();
+		}
+
+		@Override
+		void written(Collection<File> files) {
+			for (File file : files) {
+				bytesWritten += file.length();
+			}
+		}
+
+		@Override
+		void lines(long lines) {
+			this.lines += lines;
+		}
+
+		@Override
+		void cells(long cells) {
+			this.cells += cells;
+		}
+
+		@Override
+		public void close() {
+			count();
+			final IOEvent event = new IOEvent(kind, operation, file, bytesRead, bytesWritten, lines, cells,
+					System.nanoTime() - start, waitNanos);
+			if (listener != null) {
+				listener.completed(event);
+			}
+			if (flightEvent != null) {
+				IOFlightRecorder.INSTANCE.commit(flightEvent, event);
+			}
+		}
+
+		private static long sizeOf(File file) {
+			if (!file.isDirectory()) {
+				return file.length();
+			}
+			long size = 0;
+			final File[] children = file.listFiles();
+			if (children != null) {
+				for (File child : children) {
+					size += sizeOf(child);
+				}
+			}
+			return size;
+		}
+
+		/**
+		 * Adds the counters of the tracked tokenizer, they are kept once it is
+		 * closed
+		 */
+		private void count() {
+			if (tokenizer != null) {
+				bytesRead += tokenizer.getPosition();
+				lines += tokenizer.getLineNumber();
+				waitNanos += tokenizer.getWaitNanos();
+				tokenizer = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package org.omixer.utils.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.omixer.utils.readers.DelimitedTokenizer;
+
+/**
+ *
+ * A {@link Spliterator} mapping the lines of a byte range of a file. The range
+ * is tokenized lazily and splits on new line boundaries, so parallel streams
+ * process disjoint parts of the file.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ * @param <T>
+ */
+final class LineSpliterator<T> implements Spliterator<T> {
+
+	/**
+	 * Ranges smaller than this are not split any further
+	 */
+	static final long MIN_SPLIT_SIZE = 1 << 20;
+
+	private final File file;
+	private final String delimiter;
+	private final Function<DelimitedTokenizer, ? extends T> lineMapper;
+	// tokenizers opened by this spliterator or the ones split from it
+	private final Set<DelimitedTokenizer> openTokenizers;
+	private final long minSplitSize;
+
+	private long start;
+	private final long end;
+	private DelimitedTokenizer tokenizer;
+	private boolean done;
+
+	LineSpliterator(File file, String delimiter, Function<DelimitedTokenizer, ? extends T> lineMapper,
+			Set<DelimitedTokenizer> openTokenizers, long start, long end, long minSplitSize) {
+		this.file = file;
+		this.delimiter = delimiter;
+		this.lineMapper = lineMapper;
+		this.openTokenizers = openTokenizers;
+		this.start = start;
+		this.end = end;
+		this.minSplitSize = minSplitSize;
+	}
+
+	/**
+	 * Streams the lines of a file after skipping the first ones. The stream
+	 * must be closed to release the file if it is not fully consumed
+	 *
+	 * @param file
+	 * @param delimiter
+	 * @param skip
+	 * @param lineMapper
+	 *            maps the current line of the tokenizer, it must not keep a
+	 *            reference to the tokenizer
+	 * @param minSplitSize
+	 * @return
+	 * @throws IOException
+	 */
+	static <T> Stream<T> stream(File file, String delimiter, int skip,
+			Function<DelimitedTokenizer, ? extends T> lineMapper, long minSplitSize) throws IOException {
+
+		final long start;
+		try (DelimitedTokenizer tokenizer = DelimitedTokenizer.open(file, delimiter)) {
+			tokenizer.skipLines(skip);
+			start = tokenizer.getPosition();
+		}
+
+		final Set<DelimitedTokenizer> openTokenizers = ConcurrentHashMap.newKeySet();
+		// the decompressed size is unknown until the content is read
+		final long end = DelimitedTokenizer.isCompressed(file) ? Long.MAX_VALUE : file.length();
+		final LineSpliterator<T> spliterator = new LineSpliterator<T>(file, delimiter, lineMapper, openTokenizers,
+				start, end, minSplitSize);
+
+		return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+			public void run() {
+				closeAll(openTokenizers);
+			}
+		});
+	}
+
+	private static void closeAll(Set<DelimitedTokenizer> tokenizers) {
+		UncheckedIOException failure = null;
+		for (DelimitedTokenizer tokenizer : tokenizers) {
+			try {
+				tokenizer.close();
+			} catch (IOException e) {
+				failure = new UncheckedIOException(e);
+			}
+		}
+		tokenizers.clear();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean tryAdvance(Consumer<? super T> action) {
+
+		if (done) {
+			return false;
+		}
+
+		try {
+			if (tokenizer == null) {
+				tokenizer = DelimitedTokenizer.open(file, delimiter, start, end);
+				openTokenizers.add(tokenizer);
+			}
+			if (tokenizer.nextLine()) {
+				action.accept(lineMapper.apply(tokenizer));
+				return true;
+			}
+			// release the file as soon as the range is consumed
+			done = true;
+			openTokenizers.remove(tokenizer);
+			tokenizer.close();
+			return false;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Splits off the first half of the range, only before any line is read
+	 */
+	public Spliterator<T> trySplit() {
+
+		if (tokenizer != null || done || end - start < minSplitSize * 2) {
+			return null;
+		}
+
+		try {
+			final long[] bounds = DelimitedTokenizer.splitLines(file, start, end, 2);
+			if (bounds.length < 3) {
+				return null;
+			}
+			final LineSpliterator<T> prefix = new LineSpliterator<T>(file, delimiter, lineMapper, openTokenizers,
+					start, bounds[1], minSplitSize);
+			start = bounds[1];
+			return prefix;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return the number of bytes left in the range
+	 */
+	public long estimateSize() {
+		return done ? 0 : end - (tokenizer == null ? start : tokenizer.getPosition());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int characteristics() {
+		return ORDERED;
+	}
+}
@@ -1,6 +1,34 @@
 package org.omixer.utils.utils;
 
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+
+import org.omixer.utils.model.DoubleMatrix;
+
 public final class MathUtils {
+
+	/**
+	 * Arrays shorter than this are accumulated sequentially
+	 */
+	static final int PARALLEL_PREFIX_THRESHOLD = 1 << 16;
+
+	private static final DoubleBinaryOperator DOUBLE_SUM = new DoubleBinaryOperator() {
+		public double applyAsDouble(double left, double right) {
+			return left + right;
+		}
+	};
+	private static final LongBinaryOperator LONG_SUM = new LongBinaryOperator() {
+		public long applyAsLong(long left, long right) {
+			return left + right;
+		}
+	};
+	private static final IntBinaryOperator INT_SUM = new IntBinaryOperator() {
+		public int applyAsInt(int left, int right) {
+			return left + right;
+		}
+	};
 	
 	/**
 	 * 
@@ -95,6 +123,91 @@ public final class MathUtils {
 		return ratio;
 	}
 
+	/**
+	 * Same as {@link #computeRatio(Double, Double)} for each pair of values of
+	 * two arrays
+	 * 
+	 * @param lhsValues
+	 * @param rhsValues
+	 * @return the ratios
+	 */
+	public static final double[] computeRatio(double[] lhsValues, double[] rhsValues) {
+		final double[] ratios = new double[lhsValues.length];
+		computeRatio(lhsValues, rhsValues, ratios);
+		return ratios;
+	}
+
+	/**
+	 * Same as {@link #computeRatio(Double, Double)} for each pair of values of
+	 * two arrays.
+	 * 
+	 * The loop only uses selects, no branches, so that it can be vectorized by
+	 * the JIT. Results are the same as the boxed version for non negative
+	 * values, including {@link Double#NaN}s.
+	 * 
+	 * @param lhsValues
+	 * @param rhsValues
+	 * @param ratios
+	 *            receives the ratios, it may be one of the inputs
+	 * @throws IllegalArgumentException
+	 *             if the arrays do not have the same length
+	 */
+	public static final void computeRatio(double[] lhsValues, double[] rhsValues, double[] ratios) {
+
+		final int length = lhsValues.length;
+		if (rhsValues.length != length || ratios.length != length) {
+			throw new IllegalArgumentException("Arrays of different lengths " + length + ", " + rhsValues.length
+					+ " and " + ratios.length);
+		}
+
+		for (int i = 0; i < length; i++) {
+			final double lhs = lhsValues[i];
+			final double rhs = rhsValues[i];
+			// the largest value over the smallest one, or over 1 if it is 0
+			final double high = Math.max(lhs, rhs);
+			final double low = Math.min(lhs, rhs);
+			final double ratio = high / (low == 0 ? 1 : low);
+			// NaNs are equal as with Double.compareTo
+			final boolean equal = lhs == rhs | (lhs != lhs & rhs != rhs);
+			ratios[i] = equal ? 0 : lhs < rhs ? -ratio : ratio;
+		}
+	}
+
+	/**
+	 * Ratios of two columns of a matrix, see
+	 * {@link #computeRatio(Double, Double)}
+	 * 
+	 * @param matrix
+	 * @param lhsColumn
+	 * @param rhsColumn
+	 * @return the ratios, one per row
+	 */
+	public static final double[] computeRatio(DoubleMatrix matrix, int lhsColumn, int rhsColumn) {
+		return computeRatio(matrix.getColumn(lhsColumn), matrix.getColumn(rhsColumn));
+	}
+
+	/**
+	 * Ratios of two columns of a matrix, see
+	 * {@link #computeRatio(Double, Double)}
+	 * 
+	 * @param matrix
+	 * @param lhsColumn
+	 * @param rhsColumn
+	 * @return the ratios, one per row
+	 * @throws IllegalArgumentException
+	 *             if a column does not exist
+	 */
+	public static final double[] computeRatio(DoubleMatrix matrix, String lhsColumn, String rhsColumn) {
+		return computeRatio(matrix, columnIndex(matrix, lhsColumn), columnIndex(matrix, rhsColumn));
+	}
+
+	private static int columnIndex(DoubleMatrix matrix, String column) {
+		final int index = matrix.getColumnIndex(column);
+		if (index < 0) {
+			throw new IllegalArgumentException("No such column " + column);
+		}
+		return index;
+	}
 	
 	/**
 	 * Create an array of cumulative sums
@@ -106,10 +219,151 @@ public final class MathUtils {
 		// Initialize the accumulator
 		double[] accumulator = new double[array.length];  
 		// accumulate
-		accumulator[0] = array[0].doubleValue();
-		for (int i = 1; i < array.length; i++) {
-			accumulator[i] = accumulator[i - 1] + array[i].doubleValue();
+		double sum = 0;
+		for (int i = 0; i < array.length; i++) {
+			sum += array[i].doubleValue();
+			accumulator[i] = sum;
 		}
 		return accumulator;
-	}	
+	}
+
+	/**
+	 * Create an array of cumulative sums
+	 * 
+	 * @param array
+	 * @return returns the cumulative sum array
+	 */
+	public static double[] accumulate(double[] array) {
+		final double[] accumulator = array.clone();
+		accumulateInPlace(accumulator);
+		return accumulator;
+	}
+
+	/**
+	 * Create an array of cumulative sums
+	 * 
+	 * @param array
+	 * @return returns the cumulative sum array
+	 */
+	public static long[] accumulate(long[] array) {
+		final long[] accumulator = array.clone();
+		accumulateInPlace(accumulator);
+		return accumulator;
+	}
+
+	/**
+	 * Create an array of cumulative sums, as longs so large counts do not
+	 * overflow
+	 * 
+	 * @param array
+	 * @return returns the cumulative sum array
+	 */
+	public static long[] accumulate(int[] array) {
+		final long[] accumulator = new long[array.length];
+		long sum = 0;
+		for (int i = 0; i < array.length; i++) {
+			sum += array[i];
+			accumulator[i] = sum;
+		}
+		return accumulator;
+	}
+
+	/**
+	 * Replaces each value by the cumulative sum up to it
+	 * 
+	 * @param array
+	 */
+	public static void accumulateInPlace(double[] array) {
+		double sum = 0;
+		for (int i = 0; i < array.length; i++) {
+			sum += array[i];
+			array[i] = sum;
+		}
+	}
+
+	/**
+	 * Replaces each value by the cumulative sum up to it
+	 * 
+	 * @param array
+	 */
+	public static void accumulateInPlace(long[] array) {
+		long sum = 0;
+		for (int i = 0; i < array.length; i++) {
+			sum += array[i];
+			array[i] = sum;
+		}
+	}
+
+	/**
+	 * Replaces each value by the cumulative sum up to it, sums overflowing an
+	 * int wrap around
+	 * 
+	 * @param array
+	 */
+	public static void accumulateInPlace(int[] array) {
+		int sum = 0;
+		for (int i = 0; i < array.length; i++) {
+			sum += array[i];
+			array[i] = sum;
+		}
+	}
+
+	/**
+	 * Same as {@link #accumulateInPlace(double[])} using
+	 * {@link Arrays#parallelPrefix(double[], DoubleBinaryOperator)} for large
+	 * arrays. Sums are grouped differently than sequentially, so the last bits
+	 * may differ.
+	 * 
+	 * @param array
+	 */
+	public static void parallelAccumulateInPlace(double[] array) {
+		if (array.length < PARALLEL_PREFIX_THRESHOLD) {
+			accumulateInPlace(array);
+		} else {
+			Arrays.parallelPrefix(array, DOUBLE_SUM);
+		}
+	}
+
+	/**
+	 * Same as {@link #accumulateInPlace(long[])} using
+	 * {@link Arrays#parallelPrefix(long[], LongBinaryOperator)} for large
+	 * arrays
+	 * 
+	 * @param array
+	 */
+	public static void parallelAccumulateInPlace(long[] array) {
+		if (array.length < PARALLEL_PREFIX_THRESHOLD) {
+			accumulateInPlace(array);
+		} else {
+			Arrays.parallelPrefix(array, LONG_SUM);
+		}
+	}
+
+	/**
+	 * Same as {@link #accumulateInPlace(int[])} using
+	 * {@link Arrays#parallelPrefix(int[], IntBinaryOperator)} for large arrays
+	 * 
+	 * @param array
+	 */
+	public static void parallelAccumulateInPlace(int[] array) {
+		if (array.length < PARALLEL_PREFIX_THRESHOLD) {
+			accumulateInPlace(array);
+		} else {
+			Arrays.parallelPrefix(array, INT_SUM);
+		}
+	}
+
+	/**
+	 * Cumulative sums of each column of a matrix, down the rows
+	 * 
+	 * @param matrix
+	 * @return a matrix with the same labels
+	 */
+	public static DoubleMatrix accumulate(DoubleMatrix matrix) {
+		final double[][] columns = new double[matrix.getColumnCount()][];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = accumulate(matrix.getColumn(i));
+		}
+		return new DoubleMatrix(matrix.getRowLabels(), matrix.getColumnLabels(), columns);
+	}
 }
@@ -0,0 +1,331 @@
+package org.omixer.utils.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import org.omixer.utils.exceptions.IncorrectNumberOfEntriesException;
+import org.omixer.utils.model.DoubleMatrix;
+
+/**
+ *
+ * A binary columnar copy of a text matrix, written next to it on the first
+ * load and memory mapped on the following ones instead of parsing the text.
+ *
+ * The sidecar starts with a header holding the key of the text file (its
+ * size, modification time and a checksum of sampled blocks) and the
+ * delimiter it was parsed with, then the row and column labels and a type per
+ * column. Columns follow as blocks of little endian values aligned on 8
+ * bytes. A sidecar whose key does not match the text file is stale and is
+ * rebuilt.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+final class MatrixSidecar {
+
+	static final String EXTENSION = ".omxm";
+
+	private static final int MAGIC = 0x4f4d584d; // OMXM
+	private static final int VERSION = 1;
+	private static final byte DOUBLE_COLUMN = 1;
+	// magic, version and header length
+	private static final int PREFIX_LENGTH = 16;
+	/**
+	 * Size and number of the blocks of the text file that are checksummed
+	 */
+	static final int CHECKSUM_BLOCK_SIZE = 1 << 16;
+	static final int CHECKSUM_BLOCKS = 16;
+	// largest mapping used to read the columns
+	private static final long REGION_SIZE = 1 << 30;
+
+	private MatrixSidecar() {
+	}
+
+	/**
+	 * Loads the matrix from its sidecar if it is up to date, otherwise parses
+	 * the text and (re)writes the sidecar. Failing to write the sidecar, e.g.
+	 * in a read only directory, only costs the next load a parse.
+	 *
+	 * @param file
+	 * @param delimiter
+	 * @return
+	 * @throws IncorrectNumberOfEntriesException
+	 * @throws IOException
+	 */
+	static DoubleMatrix readDoubleMatrix(File file, String delimiter)
+			throws IncorrectNumberOfEntriesException, IOException {
+
+		final File sidecar = sidecarOf(file);
+		final Key key = Key.of(file, delimiter);
+
+		if (sidecar.isFile()) {
+			try {
+				final DoubleMatrix matrix = load(sidecar, key);
+				if (matrix != null) {
+					return matrix;
+				}
+			} catch (IOException e) {
+				// unreadable sidecar, rebuilt below
+			}
+		}
+
+		final DoubleMatrix matrix = FileUtils.readDoubleMatrix(file, delimiter);
+		// do not key the sidecar of a file modified while it was parsed
+		if (key.equals(Key.of(file, delimiter))) {
+			try {
+				write(sidecar, key, matrix);
+			} catch (IOException e) {
+				// the sidecar is only a cache
+			}
+		}
+		return matrix;
+	}
+
+	static File sidecarOf(File file) {
+		return new File(file.getPath() + EXTENSION);
+	}
+
+	/**
+	 * @return the matrix or <code>null</code> if the sidecar is stale
+	 */
+	static DoubleMatrix load(File sidecar, Key key) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(sidecar.toPath(), StandardOpenOption.READ)) {
+
+			final ByteBuffer prefix = ByteBuffer.allocate(PREFIX_LENGTH);
+			readFully(channel, prefix, 0);
+			prefix.flip();
+			if (prefix.remaining() < PREFIX_LENGTH || prefix.getInt() != MAGIC || prefix.getInt() != VERSION) {
+				return null;
+			}
+			final long headerLength = prefix.getLong();
+			if (headerLength < PREFIX_LENGTH || headerLength > Math.min(channel.size(), Integer.MAX_VALUE)) {
+				return null;
+			}
+
+			final ByteBuffer header = ByteBuffer.allocate((int) (headerLength - PREFIX_LENGTH));
+			readFully(channel, header, PREFIX_LENGTH);
+			final DataInputStream in = new DataInputStream(new ByteArrayInputStream(header.array()));
+
+			if (!Key.read(in).equals(key)) {
+				return null;
+			}
+
+			final int rowCount = in.readInt();
+			final int columnCount = in.readInt();
+			// check the counts against the sizes before allocating anything,
+			// labels take at least 2 bytes and column types 1 byte
+			if (rowCount < 0 || columnCount < 0 || 2L * rowCount + 3L * columnCount > in.available()) {
+				return null;
+			}
+			final long dataOffset = align(headerLength);
+			final long dataLength = channel.size() - dataOffset;
+			if (dataLength < 0 || dataLength % Double.BYTES != 0
+					|| dataLength / Double.BYTES != (long) rowCount * columnCount) {
+				// truncated
+				return null;
+			}
+
+			final String[] rowLabels = readLabels(in, rowCount);
+			final String[] columnLabels = readLabels(in, columnCount);
+			for (int i = 0; i < columnCount; i++) {
+				if (in.readByte() != DOUBLE_COLUMN) {
+					return null;
+				}
+			}
+
+			final long columnLength = (long) rowCount * Double.BYTES;
+
+			final double[][] columns = new double[columnCount][rowCount];
+			// columns are copied out of regions holding as many whole columns as possible
+			final int columnsPerRegion = (int) Math.max(1,
+					Math.min(columnCount, REGION_SIZE / Math.max(1, columnLength)));
+			for (int first = 0; first < columnCount && rowCount > 0; first += columnsPerRegion) {
+				final int last = Math.min(columnCount, first + columnsPerRegion);
+				final MappedByteBuffer region = channel.map(MapMode.READ_ONLY, dataOffset + columnLength * first,
+						columnLength * (last - first));
+				final DoubleBuffer values = region.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+				for (int i = first; i < last; i++) {
+					values.get(columns[i]);
+				}
+			}
+
+			return new DoubleMatrix(rowLabels, columnLabels, columns);
+		}
+	}
+
+	/**
+	 * Writes to a temporary file moved over the sidecar, so concurrent loads
+	 * never see a partial sidecar
+	 */
+	static void write(File sidecar, Key key, DoubleMatrix matrix) throws IOException {
+
+		final ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(headerBytes);
+		// room for the prefix, filled once the header length is known
+		out.write(new byte[PREFIX_LENGTH]);
+		key.write(out);
+		out.writeInt(matrix.getRowCount());
+		out.writeInt(matrix.getColumnCount());
+		for (String label : matrix.getRowLabels()) {
+			out.writeUTF(label);
+		}
+		for (String label : matrix.getColumnLabels()) {
+			out.writeUTF(label);
+		}
+		for (int i = 0; i < matrix.getColumnCount(); i++) {
+			out.writeByte(DOUBLE_COLUMN);
+		}
+		final long headerLength = out.size();
+		// pad so that columns are aligned
+		out.write(new byte[(int) (align(headerLength) - headerLength)]);
+		out.flush();
+
+		final ByteBuffer header = ByteBuffer.wrap(headerBytes.toByteArray());
+		header.putInt(MAGIC).putInt(VERSION).putLong(headerLength);
+		header.rewind();
+
+		final File tmp = File.createTempFile(sidecar.getName(), ".tmp", sidecar.getAbsoluteFile().getParentFile());
+		try {
+			try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+				while (header.hasRemaining()) {
+					channel.write(header);
+				}
+				final ByteBuffer block = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+				for (int i = 0; i < matrix.getColumnCount(); i++) {
+					for (double value : matrix.getColumn(i)) {
+						if (!block.hasRemaining()) {
+							drain(channel, block);
+						}
+						block.putDouble(value);
+					}
+				}
+				drain(channel, block);
+			}
+			try {
+				Files.move(tmp.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			FileUtils.deleteQuietly(tmp);
+		}
+	}
+
+	private static String[] readLabels(DataInputStream in, int count) throws IOException {
+		final String[] labels = new String[count];
+		for (int i = 0; i < count; i++) {
+			labels[i] = in.readUTF();
+		}
+		return labels;
+	}
+
+	private static long align(long offset) {
+		return (offset + Double.BYTES - 1) & -Double.BYTES;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		long at = position;
+		while (buffer.hasRemaining()) {
+			final int read = channel.read(buffer, at);
+			if (read < 0) {
+				break;
+			}
+			at += read;
+		}
+	}
+
+	private static void drain(FileChannel channel, ByteBuffer block) throws IOException {
+		block.flip();
+		while (block.hasRemaining()) {
+			channel.write(block);
+		}
+		block.clear();
+	}
+
+	/**
+	 * Identifies the content of a text file parsed with a delimiter. The
+	 * checksum covers evenly spaced blocks, the first and last included, so
+	 * it stays cheap on large files.
+	 */
+	static final class Key {
+
+		private final long size;
+		private final long lastModified;
+		private final long checksum;
+		private final String delimiter;
+
+		private Key(long size, long lastModified, long checksum, String delimiter) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.checksum = checksum;
+			this.delimiter = delimiter;
+		}
+
+		static Key of(File file, String delimiter) throws IOException {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				final long size = channel.size();
+				final CRC32 crc = new CRC32();
+				final ByteBuffer block = ByteBuffer.allocate(CHECKSUM_BLOCK_SIZE);
+
+				final long blocks = (size + CHECKSUM_BLOCK_SIZE - 1) / CHECKSUM_BLOCK_SIZE;
+				final int sampled = (int) Math.min(blocks, CHECKSUM_BLOCKS);
+				for (int i = 0; i < sampled; i++) {
+					// spread the sampled blocks from the first to the last one
+					final long index = sampled == 1 ? 0 : i * (blocks - 1) / (sampled - 1);
+					block.clear();
+					readFully(channel, block, index * CHECKSUM_BLOCK_SIZE);
+					crc.update(block.array(), 0, block.position());
+				}
+
+				return new Key(size, file.lastModified(), crc.getValue(), delimiter);
+			}
+		}
+
+		static Key read(DataInputStream in) throws IOException {
+			return new Key(in.readLong(), in.readLong(), in.readLong(), in.readBoolean() ? in.readUTF() : null);
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			out.writeLong(size);
+			out.writeLong(lastModified);
+			out.writeLong(checksum);
+			// a null delimiter reads lines as a single field
+			out.writeBoolean(delimiter != null);
+			if (delimiter != null) {
+				out.writeUTF(delimiter);
+			}
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			final Key key = (Key) o;
+			return size == key.size && lastModified == key.lastModified && checksum == key.checksum
+					&& (delimiter == null ? key.delimiter == null : delimiter.equals(key.delimiter));
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (size ^ lastModified ^ checksum) * 31 + (delimiter == null ? 0 : delimiter.hashCode());
+		}
+	}
+}
@@ -0,0 +1,269 @@
+package org.omixer.utils.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ *
+ * Block parallel gzip compression, in the style of pigz: the input is split in
+ * fixed size blocks that are deflated concurrently, each primed with the tail
+ * of the previous block as dictionary, and written back in order as a single
+ * standard gzip member whose CRC32 is combined from the CRC32 of the blocks.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+final class ParallelGzip {
+
+	static final int BLOCK_SIZE = 128 * 1024;
+	/**
+	 * The deflate window, the most a block can refer back to
+	 */
+	static final int DICTIONARY_SIZE = 32 * 1024;
+	/**
+	 * Maximum number of blocks being compressed or waiting to be written
+	 */
+	static final int BLOCKS_IN_FLIGHT = 64;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	// magic, deflate, no flags, no modification time, no extra flags, unknown OS
+	private static final byte[] HEADER = new byte[] { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0,
+			(byte) 0xff };
+	private static final long CRC32_POLYNOMIAL = 0xedb88320L;
+
+	private ParallelGzip() {
+	}
+
+	/**
+	 *
+	 * @param input
+	 * @param output
+	 * @param executor
+	 *            compresses the blocks, it is not shut down
+	 * @param blockSize
+	 * @throws IOException
+	 */
+	static void gzip(String input, String output, ExecutorService executor, int blockSize) throws IOException {
+
+		final Deque<Future<Block>> pending = new ArrayDeque<Future<Block>>();
+
+		try (InputStream in = new FileInputStream(input);
+				OutputStream out = new BufferedOutputStream(new FileOutputStream(output), BUFFER_SIZE)) {
+
+			out.write(HEADER);
+
+			long crc = 0;
+			long length = 0;
+			byte[] previous = null;
+			int previousLength = 0;
+
+			while (true) {
+				final byte[] data = new byte[blockSize];
+				final int read = readFully(in, data);
+				final boolean last = read < blockSize;
+
+				pending.add(executor.submit(new Block(data, read, previous, previousLength, last)));
+				previous = data;
+				previousLength = read;
+
+				// write the oldest blocks to bound memory
+				while (pending.size() >= BLOCKS_IN_FLIGHT || (last && !pending.isEmpty())) {
+					final Block block = get(pending.poll());
+					out.write(block.compressed, 0, block.compressedLength);
+					crc = crc32Combine(crc, block.crc, block.length);
+					length += block.length;
+				}
+
+				if (last) {
+					break;
+				}
+			}
+
+			// trailer: CRC32 and size modulo 2^32, little endian
+			writeInt(out, crc);
+			writeInt(out, length);
+
+		} finally {
+			for (Future<Block> future : pending) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * The CRC32 of two concatenated sequences given the CRC32 of each, as
+	 * zlib's crc32_combine
+	 *
+	 * @param crc1
+	 *            the CRC32 of the first sequence
+	 * @param crc2
+	 *            the CRC32 of the second sequence
+	 * @param length2
+	 *            the length of the second sequence
+	 * @return
+	 */
+	static long crc32Combine(long crc1, long crc2, long length2) {
+
+		if (length2 <= 0) {
+			return crc1;
+		}
+
+		final long[] even = new long[32];
+		final long[] odd = new long[32];
+
+		// operator for one zero bit
+		odd[0] = CRC32_POLYNOMIAL;
+		long row = 1;
+		for (int n = 1; n < 32; n++) {
+			odd[n] = row;
+			row <<= 1;
+		}
+		// operators for two then four zero bits
+		gf2MatrixSquare(even, odd);
+		gf2MatrixSquare(odd, even);
+
+		// apply length2 zero bytes to crc1, the first square gives one zero byte
+		long crc = crc1;
+		long length = length2;
+		do {
+			gf2MatrixSquare(even, odd);
+			if ((length & 1) != 0) {
+				crc = gf2MatrixTimes(even, crc);
+			}
+			length >>= 1;
+			if (length == 0) {
+				break;
+			}
+			gf2MatrixSquare(odd, even);
+			if ((length & 1) != 0) {
+				crc = gf2MatrixTimes(odd, crc);
+			}
+			length >>= 1;
+		} while (length != 0);
+
+		return (crc ^ crc2) & 0xffffffffL;
+	}
+
+	private static long gf2MatrixTimes(long[] matrix, long vector) {
+		long sum = 0;
+		long v = vector;
+		for (int i = 0; v != 0; i++, v >>>= 1) {
+			if ((v & 1) != 0) {
+				sum ^= matrix[i];
+			}
+		}
+		return sum;
+	}
+
+	private static void gf2MatrixSquare(long[] square, long[] matrix) {
+		for (int n = 0; n < 32; n++) {
+			square[n] = gf2MatrixTimes(matrix, matrix[n]);
+		}
+	}
+
+	private static Block get(Future<Block> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while compressing", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private static int readFully(InputStream in, byte[] buffer) throws IOException {
+		int read = 0;
+		while (read < buffer.length) {
+			final int n = in.read(buffer, read, buffer.length - read);
+			if (n < 0) {
+				break;
+			}
+			read += n;
+		}
+		return read;
+	}
+
+	private static void writeInt(OutputStream out, long value) throws IOException {
+		out.write((int) (value & 0xff));
+		out.write((int) ((value >> 8) & 0xff));
+		out.write((int) ((value >> 16) & 0xff));
+		out.write((int) ((value >> 24) & 0xff));
+	}
+
+	/**
+	 * Deflates a block to raw deflate data, ending on a byte boundary unless it
+	 * is the last block
+	 */
+	private static final class Block implements Callable<Block> {
+
+		private final byte[] data;
+		private final int length;
+		private final byte[] previous;
+		private final int previousLength;
+		private final boolean last;
+
+		private byte[] compressed;
+		private int compressedLength;
+		private long crc;
+
+		private Block(byte[] data, int length, byte[] previous, int previousLength, boolean last) {
+			this.data = data;
+			this.length = length;
+			this.previous = previous;
+			this.previousLength = previousLength;
+			this.last = last;
+		}
+
+		public Block call() {
+
+			final CRC32 crc32 = new CRC32();
+			crc32.update(data, 0, length);
+			crc = crc32.getValue();
+
+			final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			try {
+				if (previous != null) {
+					final int dictionaryLength = Math.min(DICTIONARY_SIZE, previousLength);
+					deflater.setDictionary(previous, previousLength - dictionaryLength, dictionaryLength);
+				}
+				deflater.setInput(data, 0, length);
+				if (last) {
+					deflater.finish();
+				}
+
+				// room for incompressible data plus the flush markers
+				compressed = new byte[length + (length >> 3) + 64];
+				while (true) {
+					compressedLength += deflater.deflate(compressed, compressedLength, compressed.length
+							- compressedLength, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+					// done once the output is not full, or the stream is finished
+					if (last ? deflater.finished() : compressedLength < compressed.length) {
+						break;
+					}
+					compressed = Arrays.copyOf(compressed, compressed.length * 2);
+				}
+			} finally {
+				deflater.end();
+			}
+
+			return this;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package org.omixer.utils.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import org.omixer.utils.exceptions.IncorrectNumberOfEntriesException;
+import org.omixer.utils.readers.DelimitedTokenizer;
+import org.omixer.utils.readers.MatrixLineProcessor;
+
+/**
+ *
+ * Reads a matrix by splitting its body into line aligned byte ranges that are
+ * parsed concurrently, then stitched back in file order
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+final class ParallelMatrixReader {
+
+	/**
+	 * Ranges smaller than this are not worth a task of their own
+	 */
+	static final long MIN_CHUNK_SIZE = 1 << 23;
+	/**
+	 * Number of ranges per worker, to even out uneven ranges
+	 */
+	private static final int CHUNKS_PER_WORKER = 4;
+
+	private ParallelMatrixReader() {
+	}
+
+	static <T> Map<String, List<T>> readMatrix(File file, final String delimiter,
+			final MatrixLineProcessor<T> lineProcessor, ForkJoinPool pool)
+			throws IncorrectNumberOfEntriesException, IOException {
+		final long parts = Math.min((long) pool.getParallelism() * CHUNKS_PER_WORKER, file.length()
+				/ MIN_CHUNK_SIZE);
+		return readMatrix(file, delimiter, lineProcessor, pool, (int) Math.max(1, parts));
+	}
+
+	/**
+	 * @param parts
+	 *            the maximum number of ranges to split the body of the matrix in
+	 */
+	static <T> Map<String, List<T>> readMatrix(File file, final String delimiter,
+			final MatrixLineProcessor<T> lineProcessor, ForkJoinPool pool, int parts)
+			throws IncorrectNumberOfEntriesException, IOException {
+
+		final Map<String, List<T>> matrix = new HashMap<String, List<T>>();
+		final String[] header;
+		final long bodyStart;
+
+		try (DelimitedTokenizer tokenizer = DelimitedTokenizer.open(file, delimiter)) {
+			// an empty file is an empty matrix
+			if (!tokenizer.nextLine()) {
+				return matrix;
+			}
+			header = tokenizer.getStrings(false);
+			bodyStart = tokenizer.getPosition();
+		}
+
+		final int startIndex = lineProcessor.getHeaderSampleStartIndex();
+		final int columnCount = header.length - startIndex;
+		final long[] bounds = DelimitedTokenizer.splitLines(file, bodyStart, parts);
+
+		final List<ChunkTask<T>> tasks = new ArrayList<ChunkTask<T>>(bounds.length - 1);
+		for (int i = 0; i + 1 < bounds.length; i++) {
+			tasks.add(new ChunkTask<T>(file, delimiter, lineProcessor, bounds[i], bounds[i + 1], columnCount));
+		}
+
+		final List<Chunk<T>> chunks;
+		try {
+			chunks = pool.invoke(new RecursiveTask<List<Chunk<T>>>() {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected List<Chunk<T>> compute() {
+					final List<Chunk<T>> chunks = new ArrayList<Chunk<T>>(tasks.size());
+					for (ChunkTask<T> task : ForkJoinTask.invokeAll(tasks)) {
+						chunks.add(task.join());
+					}
+					return chunks;
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		// stitch the chunks in file order, the header is line 1
+		long lineNum = 1;
+		int rowCount = 0;
+		for (Chunk<T> chunk : chunks) {
+			if (chunk.badLine > 0) {
+				throw new IncorrectNumberOfEntriesException("Line " + (lineNum + chunk.badLine) + " have "
+						+ chunk.badEntriesSize + " entries instead of " + header.length);
+			}
+			lineNum += chunk.lines;
+			rowCount += chunk.lines;
+		}
+
+		for (int i = startIndex; i < header.length; i++) {
+			matrix.put(header[i], new ArrayList<T>(rowCount));
+		}
+		for (int i = 0; i < columnCount; i++) {
+			// as with readMatrix, duplicated headers share the last column
+			final List<T> column = matrix.get(header[i + startIndex]);
+			for (Chunk<T> chunk : chunks) {
+				column.addAll(chunk.columns.get(i));
+			}
+		}
+
+		return matrix;
+	}
+
+	/**
+	 * The columns of a range of lines, or the first invalid line of the range
+	 */
+	private static final class Chunk<T> {
+
+		private final List<List<T>> columns;
+		private int lines;
+		// the (one-based) line of the range with a wrong number of entries
+		private int badLine;
+		private int badEntriesSize;
+
+		private Chunk(int columnCount) {
+			columns = new ArrayList<List<T>>(columnCount);
+			for (int i = 0; i < columnCount; i++) {
+				columns.add(new ArrayList<T>());
+			}
+		}
+	}
+
+	private static final class ChunkTask<T> extends RecursiveTask<Chunk<T>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final File file;
+		private final String delimiter;
+		private final MatrixLineProcessor<T> lineProcessor;
+		private final long start;
+		private final long end;
+		private final int columnCount;
+
+		private ChunkTask(File file, String delimiter, MatrixLineProcessor<T> lineProcessor, long start,
+				long end, int columnCount) {
+			this.file = file;
+			this.delimiter = delimiter;
+			this.lineProcessor = lineProcessor;
+			this.start = start;
+			this.end = end;
+			this.columnCount = columnCount;
+		}
+
+		@Override
+		protected Chunk<T> compute() {
+
+			final Chunk<T> chunk = new Chunk<T>(columnCount);
+
+			try (DelimitedTokenizer tokenizer = DelimitedTokenizer.open(file, delimiter, start, end)) {
+				while (tokenizer.nextLine()) {
+					chunk.lines++;
+					final List<T> entries = lineProcessor.process(tokenizer);
+					if (entries.size() != columnCount) {
+						// stop here, the line number is resolved once all chunks are done
+						chunk.badLine = chunk.lines;
+						chunk.badEntriesSize = entries.size();
+						return chunk;
+					}
+					int i = 0;
+					for (T entry : entries) {
+						chunk.columns.get(i++).add(entry);
+					}
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			return chunk;
+		}
+	}
+}
@@ -0,0 +1,329 @@
+package org.omixer.utils.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ *
+ * Extracts the entries of a ZIP archive concurrently: entries are located
+ * through the central directory and inflated independently, so only the
+ * selected entries are ever read
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+final class ParallelUnzip {
+
+	static final int BUFFER_SIZE = 1 << 20;
+
+	private static final String GLOB_METACHARACTERS = "*?[{\\";
+
+	private ParallelUnzip() {
+	}
+
+	/**
+	 *
+	 * @param zip
+	 * @param outputFolder
+	 * @param entries
+	 *            names or glob patterns of the entries to extract,
+	 *            <code>null</code> to extract all entries
+	 * @param executor
+	 *            extracts the entries, it is not shut down
+	 * @return the extracted files, in archive order
+	 * @throws IOException
+	 */
+	static List<File> unzip(File zip, File outputFolder, Collection<String> entries, ExecutorService executor)
+			throws IOException {
+
+		// create output directory if not exists
+		outputFolder.mkdirs();
+		final Path target = outputFolder.toPath().toAbsolutePath().normalize();
+		// buffers are reused across entries, at most one per running extraction
+		final Queue<byte[]> buffers = new ConcurrentLinkedQueue<byte[]>();
+
+		final List<File> files = new ArrayList<File>();
+		final List<Extraction> extractions = new ArrayList<Extraction>();
+		final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+		try (ZipFile zipFile = new ZipFile(zip)) {
+			// names of existing entries are taken literally, the others are
+			// read as globs if they have wildcards
+			final Set<String> names = new HashSet<String>();
+			final List<Pattern> globs = new ArrayList<Pattern>();
+			if (entries != null) {
+				for (String entry : entries) {
+					if (hasWildcards(entry) && zipFile.getEntry(entry) == null) {
+						globs.add(globToRegex(entry));
+					} else {
+						names.add(entry);
+					}
+				}
+			}
+
+			try {
+				for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+
+					if (entries != null && !names.contains(entry.getName()) && !matches(entry.getName(), globs)) {
+						continue;
+					}
+
+					final File file = resolve(target, entry.getName());
+					if (entry.isDirectory()) {
+						file.mkdirs();
+						continue;
+					}
+
+					files.add(file);
+					final Extraction extraction = new Extraction(zipFile, entry, file, buffers);
+					extractions.add(extraction);
+					futures.add(executor.submit(extraction));
+				}
+
+				for (Future<Void> future : futures) {
+					get(future);
+				}
+			} finally {
+				// the archive must outlive the extractions still running, a
+				// cancelled future does not wait for its task so they are
+				// abandoned and awaited here
+				for (Future<Void> future : futures) {
+					future.cancel(false);
+				}
+				for (Extraction extraction : extractions) {
+					extraction.abandon();
+				}
+			}
+		}
+
+		return files;
+	}
+
+	private static boolean matches(String name, List<Pattern> globs) {
+		for (Pattern glob : globs) {
+			if (glob.matcher(name).matches()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasWildcards(String name) {
+		for (int i = 0; i < name.length(); i++) {
+			if (GLOB_METACHARACTERS.indexOf(name.charAt(i)) >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Translates a glob to a regular expression over <code>/</code> separated
+	 * entry names, with the syntax of {@link java.nio.file.FileSystem#getPathMatcher(String)}:
+	 * <code>*</code> and <code>?</code> do not cross directories,
+	 * <code>**</code> does
+	 */
+	static Pattern globToRegex(String glob) {
+		final StringBuilder regex = new StringBuilder();
+		boolean inGroup = false;
+		for (int i = 0; i < glob.length(); i++) {
+			final char c = glob.charAt(i);
+			switch (c) {
+			case '\\':
+				if (++i == glob.length()) {
+					throw new IllegalArgumentException("Glob " + glob + " ends with an escape");
+				}
+				regex.append(Pattern.quote(String.valueOf(glob.charAt(i))));
+				break;
+			case '*':
+				if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+					regex.append(".*");
+					i++;
+				} else {
+					regex.append("[^/]*");
+				}
+				break;
+			case '?':
+				regex.append("[^/]");
+				break;
+			case '[':
+				final int end = glob.indexOf(']', i + 2);
+				if (end < 0) {
+					throw new IllegalArgumentException("Glob " + glob + " has an unclosed [");
+				}
+				String set = glob.substring(i + 1, end);
+				if (set.charAt(0) == '!') {
+					set = "^" + set.substring(1);
+				}
+				regex.append("[").append(set.replace("\\", "\\\\").replace("[", "\\[")).append("&&[^/]]");
+				i = end;
+				break;
+			case '{':
+				if (inGroup) {
+					throw new IllegalArgumentException("Glob " + glob + " has nested groups");
+				}
+				regex.append("(?:");
+				inGroup = true;
+				break;
+			case '}':
+				if (inGroup) {
+					regex.append(')');
+					inGroup = false;
+				} else {
+					regex.append("\\}");
+				}
+				break;
+			case ',':
+				regex.append(inGroup ? "|" : ",");
+				break;
+			default:
+				regex.append(Pattern.quote(String.valueOf(c)));
+			}
+		}
+		if (inGroup) {
+			throw new IllegalArgumentException("Glob " + glob + " has an unclosed {");
+		}
+		return Pattern.compile(regex.toString());
+	}
+
+	/**
+	 * Resolves an entry in the output folder, refusing entries that would be
+	 * written outside of it
+	 */
+	private static File resolve(Path target, String name) throws IOException {
+		final Path path;
+		try {
+			path = target.resolve(name).normalize();
+		} catch (InvalidPathException e) {
+			throw new IOException("Entry " + name + " is not a valid path", e);
+		}
+		if (!path.startsWith(target)) {
+			throw new IOException("Entry " + name + " is outside of " + target);
+		}
+		return path.toFile();
+	}
+
+	private static void extract(ZipFile zipFile, ZipEntry entry, File file, Queue<byte[]> buffers)
+			throws IOException {
+
+		// create all non exists folders
+		file.getParentFile().mkdirs();
+
+		byte[] buffer = buffers.poll();
+		if (buffer == null) {
+			buffer = new byte[BUFFER_SIZE];
+		}
+		try (InputStream in = zipFile.getInputStream(entry); OutputStream out = new FileOutputStream(file)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		} finally {
+			buffers.offer(buffer);
+		}
+	}
+
+	/**
+	 * Extracts an entry unless it was abandoned before starting
+	 */
+	private static final class Extraction implements Callable<Void> {
+
+		private final ZipFile zipFile;
+		private final ZipEntry entry;
+		private final File file;
+		private final Queue<byte[]> buffers;
+		// guarded by this extraction
+		private boolean started;
+		private boolean done;
+		private boolean complete;
+		private boolean abandoned;
+
+		private Extraction(ZipFile zipFile, ZipEntry entry, File file, Queue<byte[]> buffers) {
+			this.zipFile = zipFile;
+			this.entry = entry;
+			this.file = file;
+			this.buffers = buffers;
+		}
+
+		public Void call() throws IOException {
+			synchronized (this) {
+				if (abandoned) {
+					return null;
+				}
+				started = true;
+			}
+			boolean extracted = false;
+			try {
+				extract(zipFile, entry, file, buffers);
+				extracted = true;
+			} finally {
+				synchronized (this) {
+					done = true;
+					complete = extracted;
+					notifyAll();
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Prevents the extraction from starting, or waits for it to finish if
+		 * it already has, and deletes its file unless it completed
+		 */
+		private synchronized void abandon() {
+			abandoned = true;
+			boolean interrupted = false;
+			while (started && !done) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					// the archive can not be closed under the extraction
+					interrupted = true;
+				}
+			}
+			if (started && !complete) {
+				FileUtils.deleteQuietly(file);
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static void get(Future<Void> future) throws IOException {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while unzipping", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package org.omixer.utils.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ *
+ * Writes objects formatted concurrently: batches of objects are formatted and
+ * encoded on worker threads while the calling thread writes the encoded
+ * batches in the original order, so the output is the same as a sequential
+ * write.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+final class ParallelWriter {
+
+	static final int BATCH_SIZE = 4096;
+	/**
+	 * Maximum number of batches being formatted or waiting to be written
+	 */
+	static final int BATCHES_IN_FLIGHT = 64;
+
+	private ParallelWriter() {
+	}
+
+	/**
+	 *
+	 * @param file
+	 * @param header
+	 *            a header or <code>null</code>
+	 * @param objects
+	 * @param formater
+	 *            called concurrently, it must be thread safe
+	 * @param executor
+	 *            formats the batches, it is not shut down
+	 * @param batchSize
+	 * @throws IOException
+	 */
+	static <O> void writeObjects(File file, String header, Iterable<O> objects, Function<O, String> formater,
+			ExecutorService executor, int batchSize) throws IOException {
+
+		final String lineSeparator = System.getProperty("line.separator");
+		final Charset charset = Charset.defaultCharset();
+		final Deque<Future<ByteBuffer>> pending = new ArrayDeque<Future<ByteBuffer>>();
+
+		final Path path = PathLocks.lock(file);
+		try (ChannelWriter writer = new ChannelWriter(path, charset)) {
+
+			if (header != null) {
+				writer.write(header);
+				writer.write(lineSeparator);
+			}
+
+			List<O> batch = new ArrayList<O>(batchSize);
+			for (O o : objects) {
+				batch.add(o);
+				if (batch.size() == batchSize) {
+					pending.add(executor.submit(new Batch<O>(batch, formater, lineSeparator, charset)));
+					batch = new ArrayList<O>(batchSize);
+					// write the oldest batches to bound memory
+					while (pending.size() >= BATCHES_IN_FLIGHT) {
+						writer.write(get(pending.poll()));
+					}
+				}
+			}
+			if (!batch.isEmpty()) {
+				pending.add(executor.submit(new Batch<O>(batch, formater, lineSeparator, charset)));
+			}
+			while (!pending.isEmpty()) {
+				writer.write(get(pending.poll()));
+			}
+
+		} finally {
+			for (Future<ByteBuffer> future : pending) {
+				future.cancel(true);
+			}
+			PathLocks.unlock(path);
+		}
+	}
+
+	private static ByteBuffer get(Future<ByteBuffer> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Formats a batch, one object per line, and encodes it
+	 */
+	private static final class Batch<O> implements Callable<ByteBuffer> {
+
+		private final List<O> objects;
+		private final Function<O, String> formater;
+		private final String lineSeparator;
+		private final Charset charset;
+
+		private Batch(List<O> objects, Function<O, String> formater, String lineSeparator, Charset charset) {
+			this.objects = objects;
+			this.formater = formater;
+			this.lineSeparator = lineSeparator;
+			this.charset = charset;
+		}
+
+		public ByteBuffer call() {
+			final StringBuilder s = new StringBuilder(objects.size() * 32);
+			for (O o : objects) {
+				s.append(formater.apply(o)).append(lineSeparator);
+			}
+			return ByteBuffer.wrap(s.toString().getBytes(charset));
+		}
+	}
+}
@@ -0,0 +1,429 @@
+package org.omixer.utils.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ *
+ * Zips a directory tree: files are deflated concurrently into memory buffers
+ * (or temporary spool files for large ones) and the entries are then written
+ * in path order, with ZIP64 records when sizes, offsets or the number of
+ * entries exceed the classic ZIP limits.
+ *
+ * {@link java.util.zip.ZipOutputStream} deflates entries itself and can not
+ * take already deflated data, hence the records are written here.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+final class ParallelZip {
+
+	/**
+	 * Files larger than this are deflated to a temporary file instead of memory
+	 */
+	static final long SPOOL_THRESHOLD = 8 * 1024 * 1024;
+	/**
+	 * Maximum number of entries being deflated or waiting to be written
+	 */
+	static final int ENTRIES_IN_FLIGHT = 16;
+	/**
+	 * Sizes and offsets from this value on need ZIP64 records
+	 */
+	static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+
+	private static final int MAX_ENTRIES = 0xFFFF;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int LOCAL_HEADER = 0x04034b50;
+	private static final int CENTRAL_HEADER = 0x02014b50;
+	private static final int ZIP64_END = 0x06064b50;
+	private static final int ZIP64_LOCATOR = 0x07064b50;
+	private static final int END = 0x06054b50;
+	private static final int ZIP64_EXTRA = 0x0001;
+	private static final int VERSION = 20;
+	private static final int VERSION_ZIP64 = 45;
+	// names are UTF-8
+	private static final int FLAGS = 0x0800;
+
+	private ParallelZip() {
+	}
+
+	/**
+	 * Zips all files under directory, entries are named after the directory
+	 * followed by their relative path
+	 *
+	 * @param directory
+	 * @param output
+	 * @param executor
+	 *            deflates the files, it is not shut down
+	 * @param zip64Limit
+	 *            sizes and offsets from which ZIP64 records are used
+	 * @throws IOException
+	 */
+	static void zipDirectory(File directory, File output, ExecutorService executor, long zip64Limit)
+			throws IOException {
+
+		final Path root = directory.toPath();
+		final List<Path> files = new ArrayList<Path>();
+		try (Stream<Path> tree = Files.walk(root)) {
+			final Iterator<Path> paths = tree.iterator();
+			while (paths.hasNext()) {
+				final Path path = paths.next();
+				if (Files.isRegularFile(path)) {
+					files.add(path);
+				}
+			}
+		}
+		// deterministic entry order
+		Collections.sort(files);
+
+		final List<Entry> written = new ArrayList<Entry>(files.size());
+		final Deque<Future<Entry>> pending = new ArrayDeque<Future<Entry>>();
+		// the entries of the pending futures, in the same order
+		final Deque<Entry> deflating = new ArrayDeque<Entry>();
+		int next = 0;
+
+		try (CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(
+				output), BUFFER_SIZE))) {
+
+			while (next < files.size() || !pending.isEmpty()) {
+				// keep the executor busy while bounding the memory
+				while (next < files.size() && pending.size() < ENTRIES_IN_FLIGHT) {
+					final Path file = files.get(next++);
+					final String name = directory.getName() + "/"
+							+ root.relativize(file).toString().replace(File.separatorChar, '/');
+					final Entry entry = new Entry(file.toFile(), name);
+					deflating.add(entry);
+					pending.add(executor.submit(entry));
+				}
+				final Entry entry = get(pending.poll());
+				deflating.poll();
+				try {
+					entry.offset = out.count;
+					writeLocalHeader(out, entry, zip64Limit);
+					entry.writeData(out);
+				} finally {
+					entry.release();
+				}
+				written.add(entry);
+			}
+
+			final long centralStart = out.count;
+			for (Entry entry : written) {
+				writeCentralHeader(out, entry, zip64Limit);
+			}
+			writeEnd(out, written.size(), centralStart, out.count - centralStart, zip64Limit);
+
+		} finally {
+			// entries already deflated are released now, running ones once deflated
+			for (Entry entry : deflating) {
+				entry.abandon();
+			}
+			for (Future<Entry> future : pending) {
+				future.cancel(false);
+			}
+		}
+	}
+
+	private static Entry get(Future<Entry> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while zipping", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private static void writeLocalHeader(CountingOutputStream out, Entry entry, long zip64Limit)
+			throws IOException {
+
+		final boolean zip64 = entry.size >= zip64Limit || entry.compressedSize >= zip64Limit;
+
+		writeInt(out, LOCAL_HEADER);
+		writeShort(out, zip64 ? VERSION_ZIP64 : VERSION);
+		writeShort(out, FLAGS);
+		writeShort(out, Deflater.DEFLATED);
+		writeInt(out, entry.dosTime);
+		writeInt(out, entry.crc);
+		writeInt(out, zip64 ? ZIP64_LIMIT : entry.compressedSize);
+		writeInt(out, zip64 ? ZIP64_LIMIT : entry.size);
+		writeShort(out, entry.name.length);
+		writeShort(out, zip64 ? 20 : 0);
+		out.write(entry.name);
+		if (zip64) {
+			writeShort(out, ZIP64_EXTRA);
+			writeShort(out, 16);
+			writeLong(out, entry.size);
+			writeLong(out, entry.compressedSize);
+		}
+	}
+
+	private static void writeCentralHeader(CountingOutputStream out, Entry entry, long zip64Limit)
+			throws IOException {
+
+		// only the fields that overflow go to the ZIP64 extra field, in this order
+		final boolean zip64Size = entry.size >= zip64Limit;
+		final boolean zip64CompressedSize = entry.compressedSize >= zip64Limit;
+		final boolean zip64Offset = entry.offset >= zip64Limit;
+		final int extraLength = (zip64Size ? 8 : 0) + (zip64CompressedSize ? 8 : 0) + (zip64Offset ? 8 : 0);
+		final int version = extraLength > 0 ? VERSION_ZIP64 : VERSION;
+
+		writeInt(out, CENTRAL_HEADER);
+		writeShort(out, version);
+		writeShort(out, version);
+		writeShort(out, FLAGS);
+		writeShort(out, Deflater.DEFLATED);
+		writeInt(out, entry.dosTime);
+		writeInt(out, entry.crc);
+		writeInt(out, zip64CompressedSize ? ZIP64_LIMIT : entry.compressedSize);
+		writeInt(out, zip64Size ? ZIP64_LIMIT : entry.size);
+		writeShort(out, entry.name.length);
+		writeShort(out, extraLength > 0 ? extraLength + 4 : 0);
+		// comment length, disk number, internal and external attributes
+		writeShort(out, 0);
+		writeShort(out, 0);
+		writeShort(out, 0);
+		writeInt(out, 0);
+		writeInt(out, zip64Offset ? ZIP64_LIMIT : entry.offset);
+		out.write(entry.name);
+		if (extraLength > 0) {
+			writeShort(out, ZIP64_EXTRA);
+			writeShort(out, extraLength);
+			if (zip64Size) {
+				writeLong(out, entry.size);
+			}
+			if (zip64CompressedSize) {
+				writeLong(out, entry.compressedSize);
+			}
+			if (zip64Offset) {
+				writeLong(out, entry.offset);
+			}
+		}
+	}
+
+	private static void writeEnd(CountingOutputStream out, int entries, long centralStart, long centralSize,
+			long zip64Limit) throws IOException {
+
+		final boolean zip64 = entries >= Math.min(MAX_ENTRIES, zip64Limit) || centralStart >= zip64Limit
+				|| centralSize >= zip64Limit;
+
+		if (zip64) {
+			final long zip64EndStart = out.count;
+			writeInt(out, ZIP64_END);
+			// size of the remaining record
+			writeLong(out, 44);
+			writeShort(out, VERSION_ZIP64);
+			writeShort(out, VERSION_ZIP64);
+			writeInt(out, 0);
+			writeInt(out, 0);
+			writeLong(out, entries);
+			writeLong(out, entries);
+			writeLong(out, centralSize);
+			writeLong(out, centralStart);
+
+			writeInt(out, ZIP64_LOCATOR);
+			writeInt(out, 0);
+			writeLong(out, zip64EndStart);
+			writeInt(out, 1);
+		}
+
+		writeInt(out, END);
+		writeShort(out, 0);
+		writeShort(out, 0);
+		writeShort(out, zip64 ? MAX_ENTRIES : entries);
+		writeShort(out, zip64 ? MAX_ENTRIES : entries);
+		writeInt(out, zip64 ? ZIP64_LIMIT : centralSize);
+		writeInt(out, zip64 ? ZIP64_LIMIT : centralStart);
+		// comment length
+		writeShort(out, 0);
+	}
+
+	private static void writeShort(OutputStream out, int value) throws IOException {
+		out.write(value & 0xff);
+		out.write((value >>> 8) & 0xff);
+	}
+
+	private static void writeInt(OutputStream out, long value) throws IOException {
+		writeShort(out, (int) (value & 0xffff));
+		writeShort(out, (int) ((value >>> 16) & 0xffff));
+	}
+
+	private static void writeLong(OutputStream out, long value) throws IOException {
+		writeInt(out, value & 0xffffffffL);
+		writeInt(out, value >>> 32);
+	}
+
+	/**
+	 * MS-DOS date and time as stored in ZIP headers
+	 */
+	private static long dosTime(long time) {
+		final Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(time);
+		final int year = calendar.get(Calendar.YEAR);
+		if (year < 1980) {
+			return (1 << 21) | (1 << 16);
+		}
+		return ((long) (year - 1980) << 25) | ((calendar.get(Calendar.MONTH) + 1) << 21)
+				| (calendar.get(Calendar.DAY_OF_MONTH) << 16) | (calendar.get(Calendar.HOUR_OF_DAY) << 11)
+				| (calendar.get(Calendar.MINUTE) << 5) | (calendar.get(Calendar.SECOND) >> 1);
+	}
+
+	/**
+	 * A file deflated to memory or to a spool file
+	 */
+	private static final class Entry implements Callable<Entry> {
+
+		private final File file;
+		private final byte[] name;
+
+		private long dosTime;
+		private long crc;
+		private long size;
+		private long compressedSize;
+		private long offset;
+		private ByteArrayOutputStream buffer;
+		private File spool;
+		// guarded by this entry
+		private boolean deflated;
+		private boolean abandoned;
+
+		private Entry(File file, String name) {
+			this.file = file;
+			this.name = name.getBytes(StandardCharsets.UTF_8);
+		}
+
+		public Entry call() throws IOException {
+
+			dosTime = dosTime(file.lastModified());
+			final boolean spooled = file.length() > SPOOL_THRESHOLD;
+			final OutputStream sink;
+			if (spooled) {
+				spool = File.createTempFile("zip", ".spool", new File(FileUtils.getIOTmpDir()));
+				sink = new BufferedOutputStream(new FileOutputStream(spool), BUFFER_SIZE);
+			} else {
+				buffer = new ByteArrayOutputStream((int) Math.max(32, file.length() / 2));
+				sink = buffer;
+			}
+
+			final CRC32 crc32 = new CRC32();
+			final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			try (InputStream in = new FileInputStream(file);
+					CountingOutputStream counter = new CountingOutputStream(sink);
+					DeflaterOutputStream deflated = new DeflaterOutputStream(counter, deflater, BUFFER_SIZE)) {
+				final byte[] bytes = new byte[BUFFER_SIZE];
+				int read;
+				while ((read = in.read(bytes)) != -1) {
+					crc32.update(bytes, 0, read);
+					deflated.write(bytes, 0, read);
+					size += read;
+				}
+				deflated.finish();
+				compressedSize = counter.count;
+			} catch (IOException | RuntimeException e) {
+				release();
+				throw e;
+			} finally {
+				deflater.end();
+			}
+			crc = crc32.getValue();
+
+			synchronized (this) {
+				deflated = true;
+				// nobody will write this entry anymore
+				if (abandoned) {
+					release();
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * Releases the entry once it is deflated, now if it already is
+		 */
+		private synchronized void abandon() {
+			abandoned = true;
+			if (deflated) {
+				release();
+			}
+		}
+
+		private void writeData(OutputStream out) throws IOException {
+			if (buffer != null) {
+				buffer.writeTo(out);
+			} else {
+				Files.copy(spool.toPath(), out);
+			}
+		}
+
+		private void release() {
+			buffer = null;
+			FileUtils.deleteQuietly(spool);
+		}
+	}
+
+	/**
+	 * Counts the bytes written through it
+	 */
+	private static final class CountingOutputStream extends OutputStream {
+
+		private final OutputStream out;
+		private long count;
+
+		private CountingOutputStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+}
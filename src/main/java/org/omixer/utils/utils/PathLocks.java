@@ -0,0 +1,66 @@
+package org.omixer.utils.utils;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ *
+ * One lock per file path, so writers of the same file are serialized while
+ * writers of different files never contend. Locks are reference counted and
+ * dropped once no thread holds or waits for them.
+ *
+ * @author <a href="mailto:youssef.darzi@gmail.com">Youssef Darzi</a>
+ *
+ */
+final class PathLocks {
+
+	private static final ConcurrentMap<Path, PathLock> LOCKS = new ConcurrentHashMap<Path, PathLock>();
+
+	private static final BiFunction<Path, PathLock, PathLock> RETAIN = new BiFunction<Path, PathLock, PathLock>() {
+		public PathLock apply(Path path, PathLock lock) {
+			final PathLock retained = lock == null ? new PathLock() : lock;
+			retained.references++;
+			return retained;
+		}
+	};
+
+	private static final BiFunction<Path, PathLock, PathLock> RELEASE = new BiFunction<Path, PathLock, PathLock>() {
+		public PathLock apply(Path path, PathLock lock) {
+			return --lock.references == 0 ? null : lock;
+		}
+	};
+
+	private PathLocks() {
+	}
+
+	/**
+	 * Blocks until the lock of the file is acquired
+	 *
+	 * @param file
+	 * @return the locked path, to give back to {@link #unlock(Path)}
+	 */
+	static Path lock(File file) {
+		final Path path = file.getAbsoluteFile().toPath().normalize();
+		// the reference count is only updated within compute, under the map's lock
+		LOCKS.compute(path, RETAIN).lock();
+		return path;
+	}
+
+	/**
+	 * @param path
+	 *            a path returned by {@link #lock(File)}
+	 */
+	static void unlock(Path path) {
+		LOCKS.get(path).unlock();
+		LOCKS.computeIfPresent(path, RELEASE);
+	}
+
+	@SuppressWarnings("serial")
+	private static final class PathLock extends ReentrantLock {
+		private int references;
+	}
+}
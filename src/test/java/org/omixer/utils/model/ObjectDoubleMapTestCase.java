@@ -0,0 +1,61 @@
+package org.omixer.utils.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ObjectDoubleMapTestCase {
+
+	@Test
+	public void testPutGet() {
+		ObjectDoubleMap<String> map = new ObjectDoubleMap<String>();
+		Map<String, Double> expected = new HashMap<String, Double>();
+		Random random = new Random(7);
+
+		// enough keys to resize several times, with repeated keys
+		for (int i = 0; i < 50000; i++) {
+			String key = "key" + random.nextInt(20000);
+			double value = random.nextDouble();
+			Double previous = expected.put(key, value);
+			assertEquals(previous == null ? Double.NaN : previous, map.put(key, value), 0d);
+		}
+
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<String, Double> entry : expected.entrySet()) {
+			assertTrue(map.containsKey(entry.getKey()));
+			assertEquals(entry.getValue(), map.get(entry.getKey()), 0d);
+		}
+		assertFalse(map.containsKey("missing"));
+		assertTrue(Double.isNaN(map.get("missing")));
+		assertEquals(-1d, map.getOrDefault("missing", -1d), 0d);
+
+		final int[] visited = new int[1];
+		map.forEach((key, value) -> {
+			assertEquals(expected.get(key), value, 0d);
+			visited[0]++;
+		});
+		assertEquals(expected.size(), visited[0]);
+	}
+
+	@Test
+	public void testMissingValue() {
+		ObjectDoubleMap<Integer> map = new ObjectDoubleMap<Integer>(2, 0d);
+		assertEquals(0d, map.put(1, 3d), 0d);
+		assertEquals(3d, map.put(1, 4d), 0d);
+		assertEquals(0d, map.get(2), 0d);
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertFalse(map.containsKey(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testExpectedSizeTooLarge() {
+		new ObjectDoubleMap<Integer>(ObjectDoubleMap.MAX_SIZE + 1, 0d);
+	}
+}
@@ -0,0 +1,69 @@
+package org.omixer.utils.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class OffHeapDoubleMatrixTestCase {
+
+	@Test
+	public void testRegions() throws IOException {
+		String[] rowLabels = new String[100];
+		String[] columnLabels = new String[25];
+		for (int i = 0; i < rowLabels.length; i++) {
+			rowLabels[i] = "r" + i;
+		}
+		for (int i = 0; i < columnLabels.length; i++) {
+			columnLabels[i] = "c" + i;
+		}
+		File directory = Files.createTempDirectory("offheap").toFile();
+
+		// 3 columns per region
+		OffHeapDoubleMatrix matrix = OffHeapDoubleMatrix.allocate(rowLabels, columnLabels, directory,
+				rowLabels.length * 8 * 3 + 1);
+		try {
+			for (int j = 0; j < columnLabels.length; j++) {
+				for (int i = 0; i < rowLabels.length; i++) {
+					matrix.set(i, j, j * 1000 + i);
+				}
+			}
+			try (OffHeapDoubleMatrix zeros = OffHeapDoubleMatrix.allocate(rowLabels, columnLabels, directory)) {
+				assertEquals(0d, zeros.get(5, 5), 0d);
+			}
+
+			assertEquals(7042d, matrix.get(42, 7), 0d);
+			double[] column = matrix.getColumn("c24");
+			assertEquals(100, column.length);
+			assertEquals(24000d, column[0], 0d);
+			assertEquals(24099d, column[99], 0d);
+			assertEquals(-1, matrix.getColumnIndex("c25"));
+
+			try {
+				matrix.get(100, 0);
+				fail("rows are checked");
+			} catch (IndexOutOfBoundsException e) {
+				// expected
+			}
+		} finally {
+			matrix.close();
+		}
+
+		try {
+			matrix.get(0, 0);
+			fail("closed");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		assertArrayEquals(new String[0], directory.list());
+		directory.delete();
+	}
+}
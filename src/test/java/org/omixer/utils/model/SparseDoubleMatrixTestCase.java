@@ -0,0 +1,62 @@
+package org.omixer.utils.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.omixer.utils.model.SparseDoubleMatrix.CellVisitor;
+
+public class SparseDoubleMatrixTestCase {
+
+	private static SparseDoubleMatrix matrix() {
+		SparseDoubleMatrix.Builder builder = new SparseDoubleMatrix.Builder(new String[] { "a", "b", "c" }, 1e-9);
+		builder.addRow("r1");
+		builder.put(0, 1).put(1, 0).put(2, 2);
+		builder.addRow("r2");
+		builder.addRow("r3");
+		builder.put(0, 1e-12).put(1, Double.NaN).put(2, -3);
+		return builder.build();
+	}
+
+	@Test
+	public void testCells() {
+		SparseDoubleMatrix matrix = matrix();
+
+		assertEquals(3, matrix.getRowCount());
+		assertEquals(3, matrix.getColumnCount());
+		assertEquals(4, matrix.getNonZeroCount());
+		assertEquals(0, matrix.getNonZeroCount(1));
+		assertEquals(1, matrix.get(0, 0), 0);
+		assertEquals(0, matrix.get(0, 1), 0);
+		assertEquals(0, matrix.get(2, 0), 0);
+		assertEquals(Double.NaN, matrix.get(2, 1), 0);
+		assertEquals(1, matrix.getColumnIndex("b"));
+		assertEquals(-1, matrix.getColumnIndex("x"));
+		assertArrayEquals(new double[] { 2, 0, -3 }, matrix.getColumn("c"), 0);
+	}
+
+	@Test
+	public void testIteration() {
+		SparseDoubleMatrix matrix = matrix();
+		final StringBuilder visited = new StringBuilder();
+		CellVisitor visitor = new CellVisitor() {
+			public void visit(int row, int column, double value) {
+				visited.append(row).append(column).append(' ');
+			}
+		};
+
+		matrix.forEachInColumn(2, visitor);
+		assertEquals("02 22 ", visited.toString());
+
+		visited.setLength(0);
+		matrix.forEach(visitor);
+		assertEquals("00 02 21 22 ", visited.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnorderedColumns() {
+		SparseDoubleMatrix.Builder builder = new SparseDoubleMatrix.Builder(new String[] { "a", "b" });
+		builder.addRow("r");
+		builder.put(1, 1).put(0, 1);
+	}
+}
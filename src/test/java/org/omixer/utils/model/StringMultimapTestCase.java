@@ -0,0 +1,66 @@
+package org.omixer.utils.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class StringMultimapTestCase {
+
+	@Test
+	public void testBuild() {
+		StringMultimap.Builder builder = new StringMultimap.Builder();
+		Map<String, List<String>> expected = new LinkedHashMap<String, List<String>>();
+		Random random = new Random(3);
+
+		// interleaved keys with heavily repeated values
+		for (int i = 0; i < 100000; i++) {
+			String key = "K" + random.nextInt(5000);
+			String value = "V" + random.nextInt(300);
+			builder.put(key, value);
+			if (!expected.containsKey(key)) {
+				expected.put(key, new ArrayList<String>());
+			}
+			expected.get(key).add(value);
+		}
+		builder.addKey("empty");
+		expected.put("empty", new ArrayList<String>());
+
+		StringMultimap map = builder.build();
+		assertEquals(expected, map);
+		assertEquals(expected.hashCode(), map.hashCode());
+		assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(map.keySet()));
+		assertEquals(100000, map.getValueCount());
+		assertEquals(expected.size() + 300, map.getDistinctStringCount());
+		assertEquals(0, map.getValueCount("empty"));
+		assertEquals(Collections.emptyList(), map.get("empty"));
+	}
+
+	@Test
+	public void testLookups() {
+		StringMultimap map = new StringMultimap.Builder().put("a", "b").put("b", "a").put("a", "c").build();
+		assertEquals(Arrays.asList("b", "c"), map.get("a"));
+		assertEquals(Arrays.asList("a"), map.get("b"));
+		// values are not keys
+		assertFalse(map.containsKey("c"));
+		assertNull(map.get("c"));
+		assertNull(map.get(null));
+		assertTrue(map.containsKey("b"));
+		assertEquals(2, map.size());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly() {
+		new StringMultimap.Builder().put("a", "b").build().get("a").add("c");
+	}
+}
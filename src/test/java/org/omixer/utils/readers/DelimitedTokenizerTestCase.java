@@ -0,0 +1,154 @@
+package org.omixer.utils.readers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Test;
+
+public class DelimitedTokenizerTestCase {
+
+	private File write(String content) throws IOException {
+		File file = File.createTempFile("tokenizer", ".tsv");
+		file.deleteOnExit();
+		Files.write(file.toPath(), content.getBytes());
+		return file;
+	}
+
+	@Test
+	public void testSplitLikeString() throws IOException {
+		final String[] lines = new String[] { "a\tb\t\tc", "a\t\t", "", "\t\t", "x" };
+		File file = write(String.join("\n", lines));
+
+		try (DelimitedTokenizer tokenizer = DelimitedTokenizer.open(file, "\\t")) {
+			for (String line : lines) {
+				assertTrue(tokenizer.nextLine());
+				assertArrayEquals(line.split("\t"), tokenizer.getStrings(false));
+				assertArrayEquals(line.split("\t", -1), tokenizer.getStrings(true));
+				assertEquals(line, tokenizer.getLine());
+			}
+			assertFalse(tokenizer.nextLine());
+		}
+	}
+
+	@Test
+	public void testRegexDelimiter() throws IOException {
+		final String[] lines = new String[] { "a  b c", " a b", "1,2 ,  3" };
+		File file = write(String.join("\r\n", lines) + "\r\n");
+
+		try (DelimitedTokenizer tokenizer = DelimitedTokenizer.open(file, "\\s*,?\\s+|,")) {
+			for (String line : lines) {
+				assertTrue(tokenizer.nextLine());
+				assertArrayEquals(line.split("\\s*,?\\s+|,"), tokenizer.getStrings(false));
+			}
+			assertFalse(tokenizer.nextLine());
+		}
+	}
+
+	@Test
+	public void testFieldSlices() throws IOException {
+		File file = write("skipped\nkey::1.5::abc\n");
+
+		try (DelimitedTokenizer tokenizer = DelimitedTokenizer.open(file, "::")) {
+			assertEquals(1, tokenizer.skipLines(1));
+			assertTrue(tokenizer.nextLine());
+			assertEquals(2, tokenizer.getLineNumber());
+			assertEquals(13, tokenizer.getFieldOffset(1));
+			assertEquals(3, tokenizer.getFieldLength(1));
+			assertEquals(1.5, tokenizer.getDouble(1), 0d);
+			assertEquals("abc", tokenizer.getString(2));
+			assertEquals(3, tokenizer.getFieldCount());
+		}
+	}
+
+	@Test
+	public void testLinesAcrossWindows() throws IOException {
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			content.append(i).append(',').append(i * 2).append('\n');
+		}
+		File file = write(content.toString());
+
+		// a tiny window forces lines to be remapped across window boundaries
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+				DelimitedTokenizer tokenizer = new DelimitedTokenizer(new MappedByteSource(channel, channel.size(), 7),
+						0, ",", Charset.defaultCharset())) {
+			for (int i = 0; i < 1000; i++) {
+				assertTrue(tokenizer.nextLine());
+				assertEquals(String.valueOf(i), tokenizer.getString(0));
+				assertEquals(i * 2, tokenizer.getDouble(1), 0d);
+			}
+			assertFalse(tokenizer.nextLine());
+		}
+	}
+
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void testClosed() throws IOException {
+		File file = write("a,b\n");
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		DelimitedTokenizer tokenizer = new DelimitedTokenizer(new MappedByteSource(channel, channel.size(), 7), 0,
+				",", Charset.defaultCharset());
+		assertTrue(tokenizer.nextLine());
+		assertEquals("a", tokenizer.getString(0));
+		tokenizer.close();
+		// the window is unmapped, reading it must fail rather than crash
+		tokenizer.getString(1);
+	}
+
+	@Test
+	public void testCompressedInput() throws IOException {
+		StringBuilder content = new StringBuilder();
+		// several inflated chunks worth of lines
+		for (int i = 0; i < 100000; i++) {
+			content.append("row").append(i).append('\t').append(i).append('\n');
+		}
+
+		File gzipped = File.createTempFile("tokenizer", ".gz");
+		gzipped.deleteOnExit();
+		try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gzipped))) {
+			out.write(content.toString().getBytes());
+		}
+
+		File zipped = File.createTempFile("tokenizer", ".zip");
+		zipped.deleteOnExit();
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipped))) {
+			out.putNextEntry(new ZipEntry("dir/"));
+			out.putNextEntry(new ZipEntry("dir/rows.tsv"));
+			out.write(content.toString().getBytes());
+		}
+
+		for (File file : new File[] { gzipped, zipped }) {
+			assertTrue(DelimitedTokenizer.isCompressed(file));
+			try (DelimitedTokenizer tokenizer = DelimitedTokenizer.open(file, "\t")) {
+				for (int i = 0; i < 100000; i++) {
+					assertTrue(tokenizer.nextLine());
+					assertEquals("row" + i, tokenizer.getString(0));
+					assertEquals(i, tokenizer.getDouble(1), 0d);
+				}
+				assertFalse(tokenizer.nextLine());
+			}
+		}
+
+		// offsets are offsets in the decompressed content
+		final long offset = content.indexOf("row500\t");
+		try (DelimitedTokenizer tokenizer = DelimitedTokenizer.open(gzipped, "\t", offset, Long.MAX_VALUE)) {
+			assertTrue(tokenizer.nextLine());
+			assertEquals("row500", tokenizer.getString(0));
+		}
+		assertArrayEquals(new long[] { 0, Long.MAX_VALUE }, DelimitedTokenizer.splitLines(gzipped, 0, 4));
+		assertFalse(DelimitedTokenizer.isCompressed(write(content.toString())));
+	}
+}
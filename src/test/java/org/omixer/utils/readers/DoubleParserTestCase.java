@@ -0,0 +1,63 @@
+package org.omixer.utils.readers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DoubleParserTestCase {
+
+	private static double parse(DoubleParser parser, String s) {
+		// pad the buffer to check that only the range is read
+		final ByteBuffer buffer = ByteBuffer.wrap(("9" + s + "9").getBytes());
+		return parser.parse(buffer, 1, buffer.limit() - 1);
+	}
+
+	private static void assertSameAsJdk(String s) {
+		assertEquals(s, Double.doubleToRawLongBits(Double.parseDouble(s)),
+				Double.doubleToRawLongBits(parse(DoubleParser.STRICT, s)));
+	}
+
+	@Test
+	public void testSameAsJdk() {
+		final String[] values = new String[] { "0", "-0", "0.0", "+1", "1.", ".5", "-.5", "3.14159", "1e10",
+				"1E-10", "2.5e+3", "123456789012345678", "1234567890123456789", "0.1", "0.3", "9007199254740993",
+				"1e22", "1e23", "1.5e30", "4.9e-324", "1e-400", "1e400", "1.7976931348623157E308", "NaN",
+				"-Infinity", "0x1p3", "1d", " 1", "0.000000000000000000000000000123", "100000000000000000000000" };
+		for (String value : values) {
+			assertSameAsJdk(value);
+		}
+
+		final Random random = new Random(11);
+		for (int i = 0; i < 100000; i++) {
+			final double value = random.nextDouble() * Math.pow(10, random.nextInt(40) - 20);
+			assertSameAsJdk(Double.toString(value));
+			assertSameAsJdk(String.format(Locale.ROOT, "%.6f", value));
+			assertSameAsJdk(String.format(Locale.ROOT, "%.4e", -value));
+		}
+	}
+
+	@Test
+	public void testSentinels() {
+		final DoubleParser parser = new DoubleParser(-1, "", "NA");
+		assertEquals(-1, parse(parser, ""), 0d);
+		assertEquals(-1, parse(parser, "NA"), 0d);
+		assertEquals(-1, parser.parse("NA"), 0d);
+		assertTrue(Double.isNaN(parse(parser, "NaN")));
+		assertEquals(2.5, parse(parser, "2.5"), 0d);
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testStrictEmpty() {
+		parse(DoubleParser.STRICT, "");
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testNotANumber() {
+		parse(DoubleParser.EMPTY_AS_NAN, "1.2.3");
+	}
+}
@@ -0,0 +1,55 @@
+package org.omixer.utils.readers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class MappedCharSequenceTestCase {
+
+	@Test
+	public void testMultiByteBlocks() {
+		StringBuilder s = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			s.append(i % 3 == 0 ? "\u00e9t\u00e9" : i % 3 == 1 ? "ascii" : "\ud83d\ude00\u4e2d");
+		}
+		String expected = s.toString();
+		ByteBuffer bytes = ByteBuffer.wrap(expected.getBytes(StandardCharsets.UTF_8));
+
+		// small blocks so that multi byte sequences straddle the block ends
+		for (int blockSize : new int[] { 4, 5, 7, 64 }) {
+			MappedCharSequence chars = new MappedCharSequence(bytes, StandardCharsets.UTF_8, blockSize);
+			assertEquals(expected.length(), chars.length());
+			for (int i = expected.length() - 1; i >= 0; i--) {
+				assertEquals(expected.charAt(i), chars.charAt(i));
+			}
+			assertEquals(expected.substring(11, 40), chars.subSequence(11, 40).toString());
+			assertEquals(expected, chars.toString());
+		}
+	}
+
+	@Test
+	public void testMapFile() throws IOException {
+		File file = File.createTempFile("mapped", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "id\tcaf\u00e9\nk1\t42\n".getBytes(StandardCharsets.ISO_8859_1));
+
+		MappedCharSequence chars = new MappedCharSequence(file, StandardCharsets.ISO_8859_1);
+		Matcher matcher = Pattern.compile("k1\t(\\d+)").matcher(chars);
+		assertEquals(true, matcher.find());
+		assertEquals("42", matcher.group(1));
+		assertEquals('\u00e9', chars.charAt(6));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedCharset() {
+		new MappedCharSequence(ByteBuffer.allocate(0), StandardCharsets.UTF_16, 4);
+	}
+}
@@ -3,7 +3,12 @@ package org.omixer.utils.readers;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
 import java.util.List;
 
 import org.junit.Test;
@@ -25,5 +30,41 @@ public class SimpleLineProcessorTestCase {
 		assertEquals(4d, res.get(2).getValue(), 0.000000001);
 		
 	}
-	
+
+	@Test
+	public void testCellParsers() throws IOException {
+		File file = File.createTempFile("processor", ".tsv");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "-12\t3\t\t9000000000\t-7\t+5\n".getBytes());
+
+		SimpleLineProcessor<Integer, Long> longs = new SimpleLineProcessor<Integer, Long>(Integer.class, Long.class);
+		SimpleLineProcessor<String, BigDecimal> decimals = new SimpleLineProcessor<String, BigDecimal>(String.class,
+				BigDecimal.class);
+
+		try (DelimitedTokenizer tokenizer = DelimitedTokenizer.open(file, "\t")) {
+			tokenizer.nextLine();
+
+			List<KeyValue<Integer, Long>> res = longs.process(tokenizer);
+			assertEquals(Integer.valueOf(-12), res.get(0).getKey());
+			assertEquals(Long.valueOf(3), res.get(0).getValue());
+			assertNull(res.get(1).getValue());
+			assertEquals(Long.valueOf(9000000000L), res.get(2).getValue());
+			assertEquals(Long.valueOf(-7), res.get(3).getValue());
+			assertEquals(Long.valueOf(5), res.get(4).getValue());
+
+			List<KeyValue<String, BigDecimal>> decimalRes = decimals.process(tokenizer);
+			assertEquals("-12", decimalRes.get(0).getKey());
+			assertEquals(new BigDecimal("9000000000"), decimalRes.get(2).getValue());
+		}
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testParseFailure() {
+		new SimpleLineProcessor<String, Double>(String.class, Double.class).process("a\t1\tx", "\t");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoStringConstructor() {
+		new SimpleLineProcessor<String, Object>(String.class, Object.class);
+	}
 }
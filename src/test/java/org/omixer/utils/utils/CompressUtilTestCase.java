@@ -1,11 +1,33 @@
 package org.omixer.utils.utils;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.Test;
 import org.omixer.utils.utils.CompressUtils;
@@ -36,6 +58,57 @@ public class CompressUtilTestCase {
 		new File(gzipped).delete();	
 	}
 	
+	@Test
+	public void testParallelGzip() throws IOException {
+
+		final File input = File.createTempFile("parallel", ".txt");
+		final File gzipped = File.createTempFile("parallel", ".txt.gz");
+		final File flat = File.createTempFile("parallel", ".flat");
+		input.deleteOnExit();
+		gzipped.deleteOnExit();
+		flat.deleteOnExit();
+
+		// repetitive text with some noise, larger than a few blocks
+		final Random random = new Random(42);
+		final StringBuilder text = new StringBuilder();
+		while (text.length() < 3 * 1024 * 1024) {
+			text.append("feature").append(random.nextInt(1000)).append('\t').append(random.nextDouble()).append('\n');
+		}
+		Files.write(input.toPath(), text.toString().getBytes());
+
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			// small blocks to exercise dictionaries and block ordering
+			ParallelGzip.gzip(input.getPath(), gzipped.getPath(), executor, 10000);
+			CompressUtils.gunzip(gzipped.getPath(), flat.getPath());
+			assertArrayEquals(Files.readAllBytes(input.toPath()), Files.readAllBytes(flat.toPath()));
+
+			// empty input
+			Files.write(input.toPath(), new byte[0]);
+			CompressUtils.gzip(input.getPath(), gzipped.getPath(), executor);
+			CompressUtils.gunzip(gzipped.getPath(), flat.getPath());
+			assertEquals(0, flat.length());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testCrc32Combine() {
+		final byte[] first = "Hello ".getBytes();
+		final byte[] second = "Gzip".getBytes();
+		final CRC32 crc = new CRC32();
+		crc.update(first);
+		final long crc1 = crc.getValue();
+		crc.reset();
+		crc.update(second);
+		final long crc2 = crc.getValue();
+		crc.reset();
+		crc.update(first);
+		crc.update(second);
+		assertEquals(crc.getValue(), ParallelGzip.crc32Combine(crc1, crc2, second.length));
+	}
+
 	@Test
 	public void testUnzip() throws IOException {
 		
@@ -69,6 +142,199 @@ public class CompressUtilTestCase {
 		
 	}
 	
+	@Test
+	public void testZipDirectoryTree() throws IOException {
+
+		final Path root = Files.createTempDirectory("zipTree");
+		final File zipped = File.createTempFile("zipTree", ".zip");
+		zipped.deleteOnExit();
+
+		final List<String> names = new ArrayList<String>();
+		for (int i = 0; i < 40; i++) {
+			final Path file = root.resolve("level" + (i % 3)).resolve("sub" + (i % 2)).resolve("file" + i + ".txt");
+			Files.createDirectories(file.getParent());
+			Files.write(file, ("content of file " + i).getBytes());
+			names.add(root.getFileName() + "/" + root.relativize(file).toString());
+		}
+		Collections.sort(names);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			// the classic and the ZIP64 layouts
+			for (long zip64Limit : new long[] { ParallelZip.ZIP64_LIMIT, 0 }) {
+				ParallelZip.zipDirectory(root.toFile(), zipped, executor, zip64Limit);
+
+				final List<String> entries = new ArrayList<String>();
+				try (ZipFile zip = new ZipFile(zipped)) {
+					for (ZipEntry entry : Collections.list(zip.entries())) {
+						entries.add(entry.getName());
+						final int i = Integer.parseInt(entry.getName().replaceAll(".*file(\\d+).txt", "$1"));
+						try (InputStream in = zip.getInputStream(entry)) {
+							assertEquals("content of file " + i, new String(readAll(in)));
+						}
+					}
+				}
+				// deterministic order
+				assertEquals(names, entries);
+
+				// stream readers rely on the local headers only
+				int count = 0;
+				try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zipped))) {
+					for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+						assertEquals(names.get(count++), entry.getName());
+						assertTrue(new String(readAll(zis)).startsWith("content of file "));
+					}
+				}
+				assertEquals(names.size(), count);
+			}
+		} finally {
+			executor.shutdown();
+			try (Stream<Path> tree = Files.walk(root)) {
+				tree.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+
+	@Test
+	public void testParallelUnzip() throws IOException {
+
+		final Path root = Files.createTempDirectory("unzipTree");
+		final Path output = Files.createTempDirectory("unzipped");
+		final File zipped = File.createTempFile("unzipTree", ".zip");
+		zipped.deleteOnExit();
+		final String prefix = root.getFileName().toString();
+
+		for (int i = 0; i < 20; i++) {
+			final Path file = root.resolve("sub" + (i % 2)).resolve("file" + i + (i % 5 == 0 ? ".tsv" : ".txt"));
+			Files.createDirectories(file.getParent());
+			Files.write(file, ("content of file " + i).getBytes());
+		}
+
+		try {
+			CompressUtils.zipDirectory(root.toString(), zipped.getPath());
+
+			List<File> all = CompressUtils.unzip(zipped.getPath(), output.toString(), 3);
+			assertEquals(20, all.size());
+			assertEquals("content of file 7", FileUtils.readContentAsString(output.resolve(prefix).resolve("sub1")
+					.resolve("file7.txt").toFile()));
+
+			// by name and by glob
+			List<File> selected = CompressUtils.unzip(zipped.getPath(), output.resolve("selected").toString(),
+					Arrays.asList(prefix + "/sub0/file2.txt", "**/*.tsv"), 2);
+			List<String> names = new ArrayList<String>();
+			for (File file : selected) {
+				assertTrue(file.exists());
+				names.add(file.getName());
+			}
+			assertEquals(Arrays.asList("file0.tsv", "file10.tsv", "file2.txt", "file15.tsv", "file5.tsv"), names);
+		} finally {
+			for (Path path : new Path[] { root, output }) {
+				try (Stream<Path> tree = Files.walk(path)) {
+					tree.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testParallelUnzipLiteralNames() throws IOException {
+
+		final Path root = Files.createTempDirectory("unzipLiteral");
+		final Path output = Files.createTempDirectory("unzipped");
+		final File zipped = File.createTempFile("unzipLiteral", ".zip");
+		zipped.deleteOnExit();
+		final String prefix = root.getFileName().toString();
+
+		for (String name : new String[] { "data[1].txt", "data1.txt", "a{b}.tsv", "ab.tsv" }) {
+			Files.write(root.resolve(name), name.getBytes());
+		}
+
+		try {
+			CompressUtils.zipDirectory(root.toString(), zipped.getPath());
+
+			// wildcards in names that exist are taken literally
+			List<File> selected = CompressUtils.unzip(zipped.getPath(), output.toString(),
+					Arrays.asList(prefix + "/data[1].txt", prefix + "/a{b}.tsv"), 2);
+			List<String> names = new ArrayList<String>();
+			for (File file : selected) {
+				names.add(file.getName());
+			}
+			Collections.sort(names);
+			assertEquals(Arrays.asList("a{b}.tsv", "data[1].txt"), names);
+
+			// and still work as globs otherwise
+			selected = CompressUtils.unzip(zipped.getPath(), output.resolve("globs").toString(),
+					Arrays.asList(prefix + "/data[0-9].txt", "*/{ab,cd}.tsv"), 2);
+			names.clear();
+			for (File file : selected) {
+				names.add(file.getName());
+			}
+			Collections.sort(names);
+			assertEquals(Arrays.asList("ab.tsv", "data1.txt"), names);
+		} finally {
+			for (Path path : new Path[] { root, output }) {
+				try (Stream<Path> tree = Files.walk(path)) {
+					tree.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testParallelUnzipFailure() throws IOException {
+
+		final Path output = Files.createTempDirectory("unzipped");
+		final File zipped = File.createTempFile("unzipFailure", ".zip");
+		zipped.deleteOnExit();
+
+		final Random random = new Random(11);
+		final byte[] content = new byte[1 << 24];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) ('a' + random.nextInt(16));
+		}
+		// the failing entry comes first, so the others are still inflating
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipped))) {
+			out.putNextEntry(new ZipEntry("bad.txt"));
+			out.write("bad".getBytes());
+			for (int i = 0; i < 4; i++) {
+				out.putNextEntry(new ZipEntry("big" + i + ".txt"));
+				out.write(content);
+			}
+		}
+		// a directory in place of the first file fails its extraction
+		Files.createDirectories(output.resolve("bad.txt"));
+
+		final ExecutorService executor = Executors.newFixedThreadPool(5);
+		try {
+			try {
+				CompressUtils.unzip(zipped.getPath(), output.toString(), null, executor);
+				fail();
+			} catch (IOException e) {
+				// expected
+			}
+			// extractions are over and left no partial file
+			for (int i = 0; i < 4; i++) {
+				final File file = output.resolve("big" + i + ".txt").toFile();
+				assertTrue(!file.exists() || file.length() == content.length);
+			}
+		} finally {
+			executor.shutdownNow();
+			try (Stream<Path> tree = Files.walk(output)) {
+				tree.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+			}
+		}
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
 	@Test
 	public void testUnzipFile() throws IOException {
 		// zip a file and add as a resource
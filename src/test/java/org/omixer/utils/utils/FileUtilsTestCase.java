@@ -1,18 +1,45 @@
 package org.omixer.utils.utils;
 
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 import org.omixer.utils.Constants;
 import org.omixer.utils.exceptions.IncorrectNumberOfEntriesException;
+import org.omixer.utils.model.DoubleMatrix;
 import org.omixer.utils.model.KeyValue;
+import org.omixer.utils.model.ObjectDoubleMap;
+import org.omixer.utils.model.OffHeapDoubleMatrix;
+import org.omixer.utils.model.SparseDoubleMatrix;
+import org.omixer.utils.readers.DelimitedTokenizer;
+import org.omixer.utils.readers.DoubleParser;
+import org.omixer.utils.readers.RowCursor;
+import org.omixer.utils.readers.RowVisitor;
+import org.omixer.utils.readers.impl.RowFilters;
 import org.omixer.utils.readers.impl.SimpleLineProcessor;
 import org.omixer.utils.utils.FileUtils;
 
@@ -37,6 +64,378 @@ public class FileUtilsTestCase {
 			// read all lines?
 			assertEquals(expectedNumberOfEntries, matrix.get(colnames[i]).size());
 		}
+		// empty cells are kept as null values
+		assertEquals(null, matrix.get("4b").get(0).getValue());
+		assertEquals(23d, matrix.get("4b").get(1).getValue(), 0d);
+	}
+
+	@Test
+	public void testReadMatrixParallel() throws IncorrectNumberOfEntriesException, IOException {
+
+		File file = File.createTempFile("matrix", ".tsv");
+		file.deleteOnExit();
+		StringBuilder content = new StringBuilder("rows\ta\tb\n");
+		for (int i = 0; i < 100; i++) {
+			content.append("r").append(i).append('\t').append(i).append('\t').append(-i).append('\n');
+		}
+		Files.write(file.toPath(), content.toString().getBytes());
+
+		SimpleLineProcessor<String, Double> lineProcessor = new SimpleLineProcessor<String, Double>(String.class,
+				Double.class);
+		Map<String, List<KeyValue<String, Double>>> sequential = FileUtils.readMatrix(file, Constants.TAB,
+				lineProcessor);
+		// more ranges than workers to make sure the rows are stitched in order
+		Map<String, List<KeyValue<String, Double>>> parallel = ParallelMatrixReader.readMatrix(file,
+				Constants.TAB, lineProcessor, new ForkJoinPool(2), 7);
+
+		assertEquals(sequential.keySet(), parallel.keySet());
+		for (String column : sequential.keySet()) {
+			assertEquals(100, parallel.get(column).size());
+			for (int i = 0; i < 100; i++) {
+				assertEquals(sequential.get(column).get(i).getKey(), parallel.get(column).get(i).getKey());
+				assertEquals(sequential.get(column).get(i).getValue(), parallel.get(column).get(i).getValue());
+			}
+		}
+
+		assertEquals(8, FileUtils.readMatrixParallel(matrixFile, Constants.TAB, lineProcessor).size());
+	}
+
+	@Test
+	public void testReadMatrixProjection() throws IncorrectNumberOfEntriesException, IOException {
+		SimpleLineProcessor<String, Double> lineProcessor = new SimpleLineProcessor<String, Double>(String.class,
+				Double.class);
+		Map<String, List<KeyValue<String, Double>>> matrix = FileUtils.readMatrix(matrixFile, Constants.TAB,
+				lineProcessor);
+
+		Map<String, List<KeyValue<String, Double>>> projected = FileUtils.readMatrix(matrixFile, Constants.TAB,
+				lineProcessor, Arrays.asList("4b", "1a", "4b"));
+		assertEquals(2, projected.size());
+		assertEquals(matrix.get("1a"), projected.get("1a"));
+		assertEquals(matrix.get("4b"), projected.get("4b"));
+
+		// 4b is the 7th column after the row labels
+		projected = FileUtils.readMatrix(matrixFile, Constants.TAB, lineProcessor, new int[] { 6 });
+		assertEquals(matrix.get("4b"), projected.get("4b"));
+
+		try {
+			FileUtils.readMatrix(matrixFile, Constants.TAB, lineProcessor, Arrays.asList("x"));
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Column x is not in the header", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testReadMatrixParallelLineNumbers() throws IOException {
+
+		File file = File.createTempFile("matrix", ".tsv");
+		file.deleteOnExit();
+		StringBuilder content = new StringBuilder("rows\ta\tb\n");
+		for (int i = 0; i < 100; i++) {
+			content.append("r").append(i).append('\t').append(i);
+			// line 80 misses a column
+			if (i != 78) {
+				content.append('\t').append(i);
+			}
+			content.append('\n');
+		}
+		Files.write(file.toPath(), content.toString().getBytes());
+
+		try {
+			ParallelMatrixReader.readMatrix(file, Constants.TAB, new SimpleLineProcessor<String, Double>(
+					String.class, Double.class), new ForkJoinPool(2), 5);
+			fail();
+		} catch (IncorrectNumberOfEntriesException e) {
+			assertEquals("Line 80 have 1 entries instead of 3", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testStreamCSV() throws IOException {
+
+		File file = File.createTempFile("rows", ".csv");
+		file.deleteOnExit();
+		StringBuilder content = new StringBuilder("header\n");
+		for (int i = 0; i < 1000; i++) {
+			content.append(i).append(',').append(i % 7 == 0 ? "keep" : "drop").append('\n');
+		}
+		Files.write(file.toPath(), content.toString().getBytes());
+
+		// tiny ranges so the parallel stream is split across the whole file
+		try (Stream<String[]> rows = LineSpliterator.stream(file, Constants.COMMA, 1,
+				new Function<DelimitedTokenizer, String[]>() {
+					public String[] apply(DelimitedTokenizer tokenizer) {
+						return tokenizer.getStrings(false);
+					}
+				}, 64)) {
+			List<String> kept = rows.parallel().filter(row -> row[1].equals("keep")).map(row -> row[0])
+					.collect(Collectors.toList());
+			assertEquals(143, kept.size());
+			for (int i = 0; i < kept.size(); i++) {
+				assertEquals(String.valueOf(i * 7), kept.get(i));
+			}
+		}
+
+		try (Stream<String[]> rows = FileUtils.streamCSV(file, Constants.COMMA, 1)) {
+			assertEquals("0", rows.findFirst().get()[0]);
+		}
+		try (Stream<Integer> rows = FileUtils.streamCSV(file, 1, line -> line.length())) {
+			assertEquals(content.length() - 7 - 1000, rows.mapToInt(Integer::intValue).sum());
+		}
+	}
+
+	@Test
+	public void testStreamKeyValues() throws IOException {
+		try (Stream<KeyValue<String, List<String>>> keyValues = FileUtils.streamKeyValues(matrixFile,
+				Constants.TAB, 1)) {
+			Iterator<KeyValue<String, List<String>>> iterator = keyValues.iterator();
+			KeyValue<String, List<String>> first = iterator.next();
+			assertEquals("147.4445", first.getKey());
+			assertEquals(Arrays.asList("74", "56", "73", "0", "0", "0", "", "2"), first.getValue());
+			assertEquals("147.44928", iterator.next().getKey());
+		}
+	}
+
+	@Test
+	public void testReadDoubleMatrix() throws IncorrectNumberOfEntriesException, IOException {
+
+		DoubleMatrix matrix = FileUtils.readDoubleMatrix(matrixFile, Constants.TAB);
+		assertEquals(8, matrix.getColumnCount());
+		assertEquals(3, matrix.getRowCount());
+		assertArrayEquals(new String[] { "147.4445", "147.44928", "147.46192" }, matrix.getRowLabels());
+
+		assertEquals(6, matrix.getColumnIndex("4b"));
+		assertArrayEquals(new double[] { Double.NaN, 23, 0 }, matrix.getColumn("4b"), 0d);
+		assertArrayEquals(new double[] { 2, 5, 0 }, matrix.getColumn(7), 0d);
+		assertEquals(72d, matrix.get(1, 1), 0d);
+		assertEquals(-1, matrix.getColumnIndex("rows"));
+	}
+
+	@Test
+	public void testVisitMatrix() throws IncorrectNumberOfEntriesException, IOException {
+		final DoubleMatrix expected = FileUtils.readDoubleMatrix(matrixFile, Constants.TAB);
+		final double[] sums = new double[expected.getColumnCount()];
+		final int[] nonZeros = new int[expected.getColumnCount()];
+		final List<String> labels = new ArrayList<String>();
+
+		long rows = FileUtils.visitMatrix(matrixFile, Constants.TAB, new RowVisitor() {
+			public void start(String[] columnLabels) {
+				assertArrayEquals(expected.getColumnLabels(), columnLabels);
+			}
+
+			public void visit(RowCursor row) {
+				assertEquals(labels.size(), row.getRowIndex());
+				labels.add(row.getRowLabel());
+				for (int i = 0; i < row.getColumnCount(); i++) {
+					final double value = row.getDouble(i);
+					if (!Double.isNaN(value)) {
+						sums[i] += value;
+						nonZeros[i] += value != 0 ? 1 : 0;
+					}
+				}
+			}
+		});
+
+		assertEquals(expected.getRowCount(), rows);
+		assertArrayEquals(expected.getRowLabels(), labels.toArray());
+		for (int i = 0; i < sums.length; i++) {
+			double sum = 0;
+			int nonZero = 0;
+			for (double value : expected.getColumn(i)) {
+				if (!Double.isNaN(value)) {
+					sum += value;
+					nonZero += value != 0 ? 1 : 0;
+				}
+			}
+			assertEquals(sum, sums[i], 0d);
+			assertEquals(nonZero, nonZeros[i]);
+		}
+	}
+
+	@Test
+	public void testReadDoubleMatrixOffHeap() throws IncorrectNumberOfEntriesException, IOException {
+		DoubleMatrix expected = FileUtils.readDoubleMatrix(matrixFile, Constants.TAB);
+		try (OffHeapDoubleMatrix matrix = FileUtils.readDoubleMatrixOffHeap(matrixFile, Constants.TAB)) {
+			assertArrayEquals(expected.getRowLabels(), matrix.getRowLabels());
+			assertArrayEquals(expected.getColumnLabels(), matrix.getColumnLabels());
+			for (int i = 0; i < expected.getColumnCount(); i++) {
+				assertArrayEquals(expected.getColumn(i), matrix.getColumn(i), 0d);
+			}
+			assertEquals(72d, matrix.get(1, 1), 0d);
+		}
+	}
+
+	@Test
+	public void testReadSparseMatrix() throws IncorrectNumberOfEntriesException, IOException {
+		DoubleMatrix expected = FileUtils.readDoubleMatrix(matrixFile, Constants.TAB);
+		SparseDoubleMatrix matrix = FileUtils.readSparseMatrix(matrixFile, Constants.TAB);
+		assertArrayEquals(expected.getRowLabels(), matrix.getRowLabels());
+		assertArrayEquals(expected.getColumnLabels(), matrix.getColumnLabels());
+		for (int i = 0; i < expected.getColumnCount(); i++) {
+			assertArrayEquals(expected.getColumn(i), matrix.getColumn(i), 0d);
+		}
+
+		File file = File.createTempFile("sparse", ".tsv");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "id\ta\tb\nx\tNA\t0.001\ny\t0\t-2\n".getBytes());
+		matrix = FileUtils.readSparseMatrix(file, Constants.TAB, new DoubleParser(0, "", "NA"), 0.01);
+		assertEquals(1, matrix.getNonZeroCount());
+		assertEquals(-2, matrix.get(1, 1), 0d);
+	}
+
+	@Test
+	public void testReadDoubleMatrixSentinels() throws IncorrectNumberOfEntriesException, IOException {
+		File file = File.createTempFile("sentinels", ".tsv");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "id\ta\tb\nx\tNA\t1.5e2\ny\t\t-0.25\n".getBytes());
+
+		DoubleMatrix matrix = FileUtils.readDoubleMatrix(file, Constants.TAB, new DoubleParser(Double.NaN, "", "NA"));
+		assertArrayEquals(new double[] { Double.NaN, Double.NaN }, matrix.getColumn("a"), 0d);
+		assertArrayEquals(new double[] { 150, -0.25 }, matrix.getColumn("b"), 0d);
+
+		try {
+			FileUtils.readDoubleMatrix(file, Constants.TAB);
+			fail("NA is not a number by default");
+		} catch (NumberFormatException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testReadKeyValues() throws IOException {
+		Map<String, List<String>> keyValues = FileUtils.readKeyValues(matrixFile, Constants.TAB, 1);
+		assertEquals(3, keyValues.size());
+		assertEquals(Arrays.asList("54", "72", "0", "45", "45", "65", "23", "5"), keyValues.get("147.44928"));
+
+		assertEquals(keyValues, FileUtils.readKeyValuesCompact(matrixFile, Constants.TAB, 1));
+
+		Map<String, String> keyValue = FileUtils.readKeyValue(matrixFile.getPath(), Constants.TAB, 1);
+		assertEquals("65", keyValue.get("147.46192"));
+
+		Map<String, Double> keyDoubleValue = FileUtils.readKeyDoubleValue(matrixFile, Constants.TAB, 1);
+		assertEquals(74d, keyDoubleValue.get("147.4445"), 0d);
+		ObjectDoubleMap<String> keyDoubleMap = FileUtils.readKeyDoubleMap(matrixFile, Constants.TAB, 1);
+		assertEquals(3, keyDoubleMap.size());
+		assertEquals(54d, keyDoubleMap.get("147.44928"), 0d);
+
+		List<String[]> rows = FileUtils.readCSV(matrixFile, Constants.TAB, 0);
+		assertEquals(4, rows.size());
+		assertEquals("rows", rows.get(0)[0]);
+	}
+
+	@Test
+	public void testRowFilters() throws IncorrectNumberOfEntriesException, IOException {
+		Map<String, List<String>> keyValues = FileUtils.readKeyValues(matrixFile, Constants.TAB, 1,
+				RowFilters.prefix("147.44"));
+		assertEquals(new HashSet<String>(Arrays.asList("147.4445", "147.44928")), keyValues.keySet());
+
+		keyValues = FileUtils.readKeyValues(matrixFile, Constants.TAB, 1,
+				RowFilters.in(Arrays.asList("147.46192", "147.4", "missing")));
+		assertEquals(Arrays.asList("65", "45", "45", "35", "0", "0", "0", "0"), keyValues.get("147.46192"));
+		assertEquals(1, keyValues.size());
+
+		List<String[]> rows = FileUtils.readCSV(matrixFile, Constants.TAB, 1, 1,
+				RowFilters.not(RowFilters.matching(new Predicate<String>() {
+					public boolean test(String key) {
+						return Integer.parseInt(key) > 60;
+					}
+				})));
+		assertEquals(1, rows.size());
+		assertEquals("147.44928", rows.get(0)[0]);
+
+		SimpleLineProcessor<String, Double> lineProcessor = new SimpleLineProcessor<String, Double>(String.class,
+				Double.class);
+		Map<String, List<KeyValue<String, Double>>> matrix = FileUtils.readMatrix(matrixFile, Constants.TAB,
+				lineProcessor, RowFilters.in(Arrays.asList("147.44928")));
+		assertEquals(8, matrix.size());
+		assertEquals(Arrays.asList(new KeyValue<String, Double>("147.44928", 54d)), matrix.get("1a"));
+
+		matrix = FileUtils.readMatrix(matrixFile, Constants.TAB, lineProcessor, Arrays.asList("3a"),
+				RowFilters.prefix("147.46"));
+		assertEquals(Arrays.asList(new KeyValue<String, Double>("147.46192", 45d)), matrix.get("3a"));
+	}
+
+	@Test
+	public void testWriteObjects() throws Exception {
+		final File file = File.createTempFile("objects", ".txt");
+		file.deleteOnExit();
+
+		// several buffers worth of lines, with surrogate pairs on buffer boundaries
+		final List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < 100000; i++) {
+			lines.add(i + "\t\uD83D\uDE00\u00e9");
+		}
+		final String ls = System.getProperty("line.separator");
+		final String expected = "header" + ls + String.join(ls, lines) + ls;
+
+		// concurrent writers of the same file do not interleave
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Void>> writes = new ArrayList<Future<Void>>();
+			for (int i = 0; i < 8; i++) {
+				writes.add(executor.submit(new Callable<Void>() {
+					public Void call() throws IOException {
+						FileUtils.writeObjects(file, "header", lines, null);
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> write : writes) {
+				write.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertArrayEquals(expected.getBytes(), Files.readAllBytes(file.toPath()));
+	}
+
+	@Test
+	public void testParallelWriters() throws IOException {
+		final String ls = System.getProperty("line.separator");
+		final File sequential = File.createTempFile("sequential", ".txt");
+		sequential.deleteOnExit();
+		final File parallel = File.createTempFile("parallel", ".txt");
+		parallel.deleteOnExit();
+
+		final List<Integer> objects = new ArrayList<Integer>();
+		for (int i = 0; i < 20000; i++) {
+			objects.add(i);
+		}
+		final Map<String, Iterable<Integer>> keyValues = new LinkedHashMap<String, Iterable<Integer>>();
+		keyValues.put("a", Arrays.asList(1, 2, 3));
+		keyValues.put("b", new ArrayList<Integer>());
+		keyValues.put("c", Arrays.asList(4));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			FileUtils.writeObjects(sequential, "h", objects, null);
+			FileUtils.writeObjects(parallel, "h", objects, null, executor);
+			assertArrayEquals(Files.readAllBytes(sequential.toPath()), Files.readAllBytes(parallel.toPath()));
+
+			FileUtils.writeKeyValues(keyValues, sequential.getPath(), Constants.TAB);
+			FileUtils.writeKeyValues(keyValues, parallel.getPath(), Constants.TAB, executor);
+			assertEquals("a\t1" + ls + "a\t2" + ls + "a\t3" + ls + ls + "c\t4" + ls,
+					new String(Files.readAllBytes(sequential.toPath())));
+			assertArrayEquals(Files.readAllBytes(sequential.toPath()), Files.readAllBytes(parallel.toPath()));
+
+			Map<String, Integer> keyValue = new LinkedHashMap<String, Integer>();
+			keyValue.put("x", 1);
+			FileUtils.writeKeyValue(keyValue, null, parallel, Constants.TAB, executor);
+			assertEquals("x\t1" + ls, new String(Files.readAllBytes(parallel.toPath())));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testReadContent() throws IOException {
+		File file = File.createTempFile("content", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "a\r\nb\n\nc\rd\u00e9".getBytes(StandardCharsets.UTF_8));
+
+		assertEquals("a\r\nb\n\nc\rd\u00e9", FileUtils.readContent(file, StandardCharsets.UTF_8));
+		assertEquals("a\r\nb\n\nc\rd\u00e9", FileUtils.mapContent(file, StandardCharsets.UTF_8).toString());
+		assertEquals("abcd", FileUtils.readContentAsString(file).substring(0, 4));
 	}
-	
 }
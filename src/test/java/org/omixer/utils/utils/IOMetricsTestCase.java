@@ -0,0 +1,111 @@
+package org.omixer.utils.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.omixer.utils.exceptions.IncorrectNumberOfEntriesException;
+import org.omixer.utils.utils.IOEvent.Kind;
+
+public class IOMetricsTestCase {
+
+	private final List<IOEvent> events = new ArrayList<IOEvent>();
+
+	@After
+	public void disable() {
+		IOMetrics.setListener(null);
+	}
+
+	private void enable() {
+		IOMetrics.setListener(new IOListener() {
+			public void completed(IOEvent event) {
+				events.add(event);
+			}
+		});
+	}
+
+	@Test
+	public void testDisabled() throws IOException, IncorrectNumberOfEntriesException {
+		File file = File.createTempFile("metrics", ".tsv");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "id\ta\nr1\t1\n".getBytes());
+
+		FileUtils.readDoubleMatrix(file, "\t");
+		assertTrue(events.isEmpty());
+	}
+
+	@Test
+	public void testReadAndWrite() throws IOException, IncorrectNumberOfEntriesException {
+		File file = File.createTempFile("metrics", ".tsv");
+		file.deleteOnExit();
+		byte[] content = "id\ta\tb\nr1\t1\t2\nr2\t3\t4\nr3\t5\t6\n".getBytes();
+		Files.write(file.toPath(), content);
+
+		enable();
+		FileUtils.readDoubleMatrix(file, "\t");
+		FileUtils.readDoubleMatrixOffHeap(file, "\t").close();
+
+		assertEquals(2, events.size());
+		IOEvent read = events.get(0);
+		assertEquals(Kind.READ, read.getKind());
+		assertEquals("readDoubleMatrix", read.getOperation());
+		assertEquals(file, read.getFile());
+		assertEquals(content.length, read.getBytesRead());
+		assertEquals(4, read.getLines());
+		assertEquals(6, read.getCells());
+		assertTrue(read.getElapsedNanos() >= read.getWaitNanos());
+		assertEquals(Double.NaN, read.getCompressionRatio(), 0);
+
+		// both passes are counted in one event
+		IOEvent offHeap = events.get(1);
+		assertEquals(content.length * 2, offHeap.getBytesRead());
+		assertEquals(8, offHeap.getLines());
+		assertEquals(6, offHeap.getCells());
+
+		List<Integer> objects = new ArrayList<Integer>();
+		for (int i = 0; i < 100; i++) {
+			objects.add(i);
+		}
+		FileUtils.writeObjects(file, "h", objects, null);
+		IOEvent write = events.get(2);
+		assertEquals(Kind.WRITE, write.getKind());
+		assertEquals(101, write.getLines());
+		assertEquals(file.length(), write.getBytesWritten());
+	}
+
+	@Test
+	public void testCompressionRatio() throws IOException {
+		File file = File.createTempFile("metrics", ".txt");
+		file.deleteOnExit();
+		File gz = new File(file.getPath() + ".gz");
+		gz.deleteOnExit();
+		File copy = File.createTempFile("metrics", ".txt");
+		copy.deleteOnExit();
+		StringBuilder s = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			s.append("repeated line\n");
+		}
+		Files.write(file.toPath(), s.toString().getBytes());
+
+		enable();
+		CompressUtils.gzip(file.getPath(), gz.getPath());
+		CompressUtils.gunzip(gz.getPath(), copy.getPath());
+
+		IOEvent gzip = events.get(0);
+		assertEquals(Kind.COMPRESS, gzip.getKind());
+		assertEquals(file.length(), gzip.getBytesRead());
+		assertEquals(gz.length(), gzip.getBytesWritten());
+		assertTrue(gzip.getCompressionRatio() > 10);
+
+		IOEvent gunzip = events.get(1);
+		assertEquals(Kind.DECOMPRESS, gunzip.getKind());
+		assertEquals(gzip.getCompressionRatio(), gunzip.getCompressionRatio(), 0);
+	}
+}
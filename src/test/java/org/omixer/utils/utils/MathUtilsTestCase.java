@@ -1,8 +1,12 @@
 package org.omixer.utils.utils;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
+
 import org.junit.Test;
+import org.omixer.utils.model.DoubleMatrix;
 import org.omixer.utils.utils.MathUtils;
 
 public class MathUtilsTestCase {
@@ -18,6 +22,27 @@ public class MathUtilsTestCase {
 		assertEquals(0d, MathUtils.computeRatio(1d, 1d), delta);
 	}
 
+	@Test
+	public void testComputeRatioArrays() {
+		double[] lhs = new double[] { 1, 2, 1, 0, 1, 0, 3.5, Double.NaN, Double.NaN, 4 };
+		double[] rhs = new double[] { 2, 1, 0, 1, 1, 0, 0.5, Double.NaN, 4, Double.NaN };
+
+		double[] ratios = MathUtils.computeRatio(lhs, rhs);
+		for (int i = 0; i < lhs.length; i++) {
+			assertEquals(MathUtils.computeRatio(lhs[i], rhs[i]), ratios[i], 0d);
+		}
+
+		DoubleMatrix matrix = new DoubleMatrix(new String[lhs.length], new String[] { "a", "b" },
+				new double[][] { lhs, rhs });
+		assertArrayEquals(ratios, MathUtils.computeRatio(matrix, "a", "b"), 0d);
+		assertArrayEquals(ratios, MathUtils.computeRatio(matrix, 0, 1), 0d);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testComputeRatioLengths() {
+		MathUtils.computeRatio(new double[1], new double[2]);
+	}
+
 	@Test
 	public void testAccumulate() {
 		// given an array this function will create cumulative sum
@@ -30,4 +55,55 @@ public class MathUtilsTestCase {
 		assertEquals(10, accumulator[3], delta);
 		assertEquals(15, accumulator[4], delta);
 	}
+
+	@Test
+	public void testAccumulatePrimitives() {
+		assertEquals(0, MathUtils.accumulate(new Integer[0]).length);
+		assertEquals(0, MathUtils.accumulate(new double[0]).length);
+
+		double[] doubles = new double[] { 1.5, 2, -0.5 };
+		assertArrayEquals(new double[] { 1.5, 3.5, 3 }, MathUtils.accumulate(doubles), delta);
+		assertArrayEquals(new double[] { 1.5, 2, -0.5 }, doubles, 0d);
+		MathUtils.accumulateInPlace(doubles);
+		assertArrayEquals(new double[] { 1.5, 3.5, 3 }, doubles, delta);
+
+		assertArrayEquals(new long[] { 3000000000L, 6000000000L },
+				MathUtils.accumulate(new long[] { 3000000000L, 3000000000L }));
+		// int sums are widened
+		assertArrayEquals(new long[] { Integer.MAX_VALUE, Integer.MAX_VALUE * 2L },
+				MathUtils.accumulate(new int[] { Integer.MAX_VALUE, Integer.MAX_VALUE }));
+	}
+
+	@Test
+	public void testParallelAccumulate() {
+		int[] ints = new int[MathUtils.PARALLEL_PREFIX_THRESHOLD * 4 + 3];
+		long[] longs = new long[ints.length];
+		for (int i = 0; i < ints.length; i++) {
+			ints[i] = i % 7;
+			longs[i] = i;
+		}
+		long[] expected = MathUtils.accumulate(ints);
+		MathUtils.parallelAccumulateInPlace(ints);
+		MathUtils.parallelAccumulateInPlace(longs);
+		for (int i = 0; i < ints.length; i++) {
+			assertEquals(expected[i], ints[i]);
+			assertEquals(i * (i + 1L) / 2, longs[i]);
+		}
+
+		// integral doubles are summed exactly in any order
+		double[] doubles = new double[ints.length];
+		Arrays.fill(doubles, 1);
+		MathUtils.parallelAccumulateInPlace(doubles);
+		assertEquals(doubles.length, doubles[doubles.length - 1], 0d);
+	}
+
+	@Test
+	public void testAccumulateMatrix() {
+		DoubleMatrix matrix = new DoubleMatrix(new String[] { "r1", "r2" }, new String[] { "a", "b" },
+				new double[][] { { 1, 2 }, { 3, 4 } });
+		DoubleMatrix accumulated = MathUtils.accumulate(matrix);
+		assertArrayEquals(new double[] { 1, 3 }, accumulated.getColumn("a"), 0d);
+		assertArrayEquals(new double[] { 3, 7 }, accumulated.getColumn("b"), 0d);
+		assertArrayEquals(new double[] { 1, 2 }, matrix.getColumn("a"), 0d);
+	}
 }
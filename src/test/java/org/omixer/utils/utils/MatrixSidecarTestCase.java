@@ -0,0 +1,92 @@
+package org.omixer.utils.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import org.omixer.utils.Constants;
+import org.omixer.utils.exceptions.IncorrectNumberOfEntriesException;
+import org.omixer.utils.model.DoubleMatrix;
+
+public class MatrixSidecarTestCase {
+
+	private File matrixFile = new File(getClass().getClassLoader().getResource("matrix.tsv").getFile());
+
+	private static void assertMatrixEquals(DoubleMatrix expected, DoubleMatrix actual) {
+		assertArrayEquals(expected.getRowLabels(), actual.getRowLabels());
+		assertArrayEquals(expected.getColumnLabels(), actual.getColumnLabels());
+		for (int i = 0; i < expected.getColumnCount(); i++) {
+			assertArrayEquals(expected.getColumn(i), actual.getColumn(i), 0d);
+		}
+	}
+
+	@Test
+	public void testSidecar() throws IOException, IncorrectNumberOfEntriesException {
+		File directory = Files.createTempDirectory("sidecar").toFile();
+		File file = new File(directory, "matrix.tsv");
+		FileUtils.copy(matrixFile, file);
+		File sidecar = MatrixSidecar.sidecarOf(file);
+
+		try {
+			DoubleMatrix expected = FileUtils.readDoubleMatrix(file, Constants.TAB);
+
+			// the first load writes the sidecar
+			assertMatrixEquals(expected, FileUtils.readDoubleMatrixCached(file, Constants.TAB));
+			assertTrue(sidecar.isFile());
+
+			// the second one reads it
+			assertMatrixEquals(expected,
+					MatrixSidecar.load(sidecar, MatrixSidecar.Key.of(file, Constants.TAB)));
+			assertMatrixEquals(expected, FileUtils.readDoubleMatrixCached(file, Constants.TAB));
+
+			// another delimiter does not match
+			assertEquals(null, MatrixSidecar.load(sidecar, MatrixSidecar.Key.of(file, ",")));
+
+			// same size and modification time but another content
+			final long lastModified = file.lastModified();
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				String content = new String(Files.readAllBytes(file.toPath()));
+				int at = content.indexOf("\t72\t");
+				raf.seek(at + 1);
+				raf.write("27".getBytes());
+			}
+			file.setLastModified(lastModified);
+
+			DoubleMatrix modified = FileUtils.readDoubleMatrixCached(file, Constants.TAB);
+			assertEquals(27d, modified.get(1, 1), 0d);
+			assertMatrixEquals(modified,
+					MatrixSidecar.load(sidecar, MatrixSidecar.Key.of(file, Constants.TAB)));
+
+			// a truncated sidecar is rebuilt
+			try (RandomAccessFile raf = new RandomAccessFile(sidecar, "rw")) {
+				raf.setLength(raf.length() - 8);
+			}
+			assertMatrixEquals(modified, FileUtils.readDoubleMatrixCached(file, Constants.TAB));
+			assertMatrixEquals(modified,
+					MatrixSidecar.load(sidecar, MatrixSidecar.Key.of(file, Constants.TAB)));
+
+			// as is one with corrupted counts
+			for (int count : new int[] { -1, Integer.MAX_VALUE }) {
+				try (RandomAccessFile raf = new RandomAccessFile(sidecar, "rw")) {
+					// prefix, size, modification time, checksum and delimiter
+					raf.seek(16 + 24 + 1 + 2 + Constants.TAB.length());
+					raf.writeInt(count);
+				}
+				assertEquals(null, MatrixSidecar.load(sidecar, MatrixSidecar.Key.of(file, Constants.TAB)));
+				assertMatrixEquals(modified, FileUtils.readDoubleMatrixCached(file, Constants.TAB));
+				assertMatrixEquals(modified,
+						MatrixSidecar.load(sidecar, MatrixSidecar.Key.of(file, Constants.TAB)));
+			}
+		} finally {
+			sidecar.delete();
+			file.delete();
+			directory.delete();
+		}
+	}
+}